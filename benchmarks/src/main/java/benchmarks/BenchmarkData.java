@@ -0,0 +1,56 @@
+package benchmarks;
+
+import common.datas.StudyGroup;
+import common.datas.StudyGroupGenerator;
+import common.exceptions.CannotReadFileException;
+import server.customCollection.CustomTreeMap;
+import server.utilities.FileManager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generated collections and CSV files for benchmarks
+ */
+public final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    public static String key(long id) {
+        return "key" + id;
+    }
+
+    /**
+     * @return collection with ids 1..size under keys key(id)
+     */
+    public static CustomTreeMap<String, StudyGroup> collection(int size, long seed) {
+        StudyGroupGenerator generator = new StudyGroupGenerator(seed);
+        CustomTreeMap<String, StudyGroup> collection = new CustomTreeMap<>();
+        for (long id = 1; id <= size; id++) collection.put(key(id), generator.next(id));
+        return collection;
+    }
+
+    /**
+     * Write generated collection to a temporary CSV file, which is deleted on exit
+     * @return path of the file
+     */
+    public static Path writeCsv(int size, long seed) throws IOException, CannotReadFileException {
+        Path csv = Files.createTempFile("study_groups_" + size + "_", ".csv");
+        csv.toFile().deleteOnExit();
+        if (!new FileManager(csv.toString()).exportCsv(collection(size, seed)))
+            throw new IOException("Не удалось записать " + csv);
+        return csv;
+    }
+
+    /**
+     * Delete file with its snapshot and log segments, which the server keeps next to it
+     */
+    public static void delete(Path csv) throws IOException {
+        String name = csv.getFileName().toString();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(csv.toAbsolutePath().getParent(), name + "*")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+}
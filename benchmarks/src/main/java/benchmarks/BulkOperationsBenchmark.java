@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import server.customCollection.CustomTreeMap;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk operations of CustomTreeMap against walking its entries in one thread.
+ * threshold = Long.MAX_VALUE walks the tree in the calling thread, a small threshold splits it by subtrees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class BulkOperationsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"9223372036854775807", "8192"})
+    public long threshold;
+
+    private CustomTreeMap<Integer, Long> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TreeMap<Integer, Long> filled = new TreeMap<>();
+        for (int i = 0; i < size; i++) filled.put(i, (long) i);
+        map = new CustomTreeMap<>(filled);
+    }
+
+    @Benchmark
+    public long iterateSum() {
+        long sum = 0;
+        for (Map.Entry<Integer, Long> entry : map.entrySet()) sum += entry.getValue();
+        return sum;
+    }
+
+    @Benchmark
+    public long reduceToLong() {
+        return map.reduceToLong(threshold, (key, value) -> value, 0L, Long::sum);
+    }
+
+    @Benchmark
+    public Long reduce() {
+        return map.reduce(threshold, (key, value) -> value, Long::sum);
+    }
+
+    @Benchmark
+    public Integer searchLast() {
+        int last = size - 1;
+        return map.search(threshold, (key, value) -> key == last ? key : null);
+    }
+
+    @Benchmark
+    public void replaceAll() {
+        map.replaceAll(threshold, (key, value) -> value + 1);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import common.datas.StudyGroupGenerator;
+import common.interaction.FrameCodec;
+import common.interaction.Request;
+import common.interaction.Response;
+import common.interaction.ResponseCode;
+import common.interaction.WireFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of frame bodies in both wire formats
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"SERIALIZED", "BINARY"})
+    public WireFormat format;
+
+    /**
+     * Length of the response text
+     */
+    @Param({"64", "65536"})
+    public int responseLength;
+
+    private Request request;
+    private Response response;
+    private byte[] requestBody;
+    private byte[] responseBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        request = new Request(new String[]{"insert", "key1"}, new StudyGroupGenerator(42).nextRaw());
+        request.setId(1);
+        StringBuilder text = new StringBuilder(responseLength);
+        while (text.length() < responseLength) text.append("Успешно добавлено Study Group!\n");
+        text.setLength(responseLength);
+        response = new Response(ResponseCode.OK, text.toString(), 1);
+        requestBody = FrameCodec.encode(request, format);
+        responseBody = FrameCodec.encode(response, format);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() throws IOException {
+        return FrameCodec.encode(request, format);
+    }
+
+    @Benchmark
+    public Object decodeRequest() throws IOException, ClassNotFoundException {
+        return FrameCodec.decode(requestBody, requestBody.length);
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() throws IOException {
+        return FrameCodec.encode(response, format);
+    }
+
+    @Benchmark
+    public Object decodeResponse() throws IOException, ClassNotFoundException {
+        return FrameCodec.decode(responseBody, responseBody.length);
+    }
+}
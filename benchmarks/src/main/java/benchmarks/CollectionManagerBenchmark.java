@@ -0,0 +1,179 @@
+package benchmarks;
+
+import common.datas.FormOfEducation;
+import common.datas.StudyGroupGenerator;
+import common.interaction.StudyGroupRaw;
+import org.openjdk.jmh.annotations.*;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.FileManager;
+import server.utilities.ResponseOutputer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands of CollectionManager on a collection loaded from a generated CSV file.
+ * Commands, which change the collection, leave it of the same size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class CollectionManagerBenchmark {
+    private static final int LOOKUPS = 1 << 12;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"tree", "skiplist", "persistent"})
+    public String collection;
+
+    private Path csv;
+    private CollectionManager collectionManager;
+    private StudyGroupRaw[] raws;
+    private String[] ids;
+    private StudyGroupRaw smallest;
+    private int next;
+    private long insertedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        csv = BenchmarkData.writeCsv(size, 42);
+        collectionManager = new CollectionManager(new CommandManager(), new FileManager(csv.toString(), true), null, collection);
+        Random random = new Random(7);
+        StudyGroupGenerator generator = new StudyGroupGenerator(7);
+        raws = new StudyGroupRaw[LOOKUPS];
+        ids = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            raws[i] = generator.nextRaw();
+            ids[i] = String.valueOf(1 + random.nextInt(size));
+        }
+        smallest = generator.nextRaw("A");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(csv);
+    }
+
+    private int nextIndex() {
+        return next++ & (LOOKUPS - 1);
+    }
+
+    @Benchmark
+    public String insertAndRemove() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        String key = "new" + insertedKeys++;
+        collectionManager.insert(key, raws[nextIndex()], out);
+        collectionManager.remove(key, out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String update() {
+        int index = nextIndex();
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.update(ids[index], raws[index], out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String getById() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.get_by_id(ids[nextIndex()], out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String removeMissingKey() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.remove("missing", out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String info() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.info(out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String help() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.help(out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String show() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.show(out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String filterContainsName() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.filter_contains_name("chem", out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String filterLessThanTransferredStudents() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.filter_less_than_transferred_students("5", out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String filterGreaterThanFormOfEducation() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.filter_greater_than_form_of_education(FormOfEducation.FULL_TIME_EDUCATION.name(), out);
+        return out.getOutPut();
+    }
+
+    /**
+     * Scans the whole collection, no generated name is lower than "A"
+     */
+    @Benchmark
+    public String removeLowerNothing() {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.removeLower(smallest, out);
+        return out.getOutPut();
+    }
+
+    @Benchmark
+    public String replaceIfGreater() {
+        int index = nextIndex();
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.replace_if_greater(BenchmarkData.key(Long.parseLong(ids[index])), raws[index], out);
+        return out.getOutPut();
+    }
+
+    /**
+     * Clear is measured once per fresh collection
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public String clear(Reloaded reloaded) {
+        ResponseOutputer out = ResponseOutputer.acquire();
+        collectionManager.clear(out);
+        return out.getOutPut();
+    }
+
+    @State(Scope.Thread)
+    public static class Reloaded {
+        @Setup(Level.Invocation)
+        public void reload(CollectionManagerBenchmark benchmark) throws IOException {
+            benchmark.collectionManager.loadCollectionFromCsv();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import common.datas.StudyGroup;
+import org.openjdk.jmh.annotations.*;
+import server.customCollection.CustomTreeMap;
+import server.utilities.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing of generated collections in CSV and binary snapshot storage
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class FileManagerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * mapped, stream - CSV read through memory mapping or opencsv; binary - snapshot
+     */
+    @Param({"mapped", "stream", "binary"})
+    public String storage;
+
+    private Path csv;
+    private Path output;
+    private FileManager reader;
+    private FileManager writer;
+    private CustomTreeMap<String, StudyGroup> collection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean binary = storage.equals("binary");
+        csv = BenchmarkData.writeCsv(rows, 42);
+        reader = new FileManager(csv.toString(), storage.equals("mapped"), binary);
+        collection = reader.readCollection();
+        if (binary && !reader.writeSnapshot(collection, rows)) throw new IOException("Не удалось записать снимок");
+        output = Files.createTempFile("study_groups_out_", ".csv");
+        writer = new FileManager(output.toString(), false, binary);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(csv);
+        BenchmarkData.delete(output);
+    }
+
+    @Benchmark
+    public CustomTreeMap<String, StudyGroup> readCollection() throws IOException {
+        return reader.readCollection();
+    }
+
+    @Benchmark
+    public boolean writeCollection() {
+        return writer.writeCollection(collection, rows);
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import server.customCollection.CustomPersistentTreeMap;
+import server.customCollection.CustomSkipListMap;
+import server.customCollection.CustomTreeMap;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of the collection maps against java.util.TreeMap.
+ * Even keys are in the map, odd keys are inserted and removed again, so the size does not change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class TreeMapBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"custom", "java", "skiplist", "persistent"})
+    public String implementation;
+
+    private NavigableMap<Integer, Integer> map;
+    private int[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TreeMap<Integer, Integer> filled = new TreeMap<>();
+        for (int i = 0; i < size; i++) filled.put(2 * i, i);
+        switch (implementation) {
+            case "custom": map = new CustomTreeMap<>(filled); break;
+            case "skiplist": map = new CustomSkipListMap<>(filled); break;
+            case "persistent": map = new CustomPersistentTreeMap<>(filled); break;
+            default: map = filled;
+        }
+        Random random = new Random(42);
+        keys = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) keys[i] = 2 * random.nextInt(size);
+    }
+
+    private int nextKey() {
+        return keys[next++ & (LOOKUPS - 1)];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        return map.ceilingKey(nextKey() + 1);
+    }
+
+    @Benchmark
+    public Integer putRemove() {
+        int key = nextKey() + 1;
+        map.put(key, key);
+        return map.remove(key);
+    }
+
+    @Benchmark
+    public Integer replace() {
+        int key = nextKey();
+        return map.put(key, key);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void iterate1000(Blackhole blackhole) {
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : map.tailMap(Math.min(nextKey(), 2 * (size - 1000)), true).entrySet()) {
+            blackhole.consume(entry.getValue());
+            if (++count == 1000) break;
+        }
+    }
+
+    @Benchmark
+    public long iterateAll() {
+        long sum = 0;
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) sum += entry.getValue();
+        return sum;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Package, which contains JMH benchmarks of the collection, commands, file storage and protocol.
+ * Build with mvn package and run with java -jar benchmarks/target/benchmarks.jar
+ */
+package benchmarks;
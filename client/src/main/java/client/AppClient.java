@@ -3,12 +3,17 @@ package client;
 import client.utilities.*;
 import common.exceptions.NotInDeclaredLimitsException;
 import common.exceptions.WrongAmountOfElementsException;
+import common.interaction.WireFormat;
 import java.util.HashMap;
 import java.util.Scanner;
 
 public class AppClient {
     public static final int RECONNECTION_TIMEOUT = 5 * 1000;
     public static final int MAX_RECONNECTION_ATTEMPTS = 5;
+    public static final WireFormat WIRE_FORMAT = System.getProperty("client.protocol", "binary").equals("serialized")
+            ? WireFormat.SERIALIZED : WireFormat.BINARY;
+    public static final int PIPELINE_WINDOW = Integer.getInteger("client.pipeline", 64);
+    public static final boolean SCRIPT_BATCH = !System.getProperty("client.script", "batch").equals("pipeline");
     public static int port;
     private static boolean initializeConnectionAddress(String[] hostAndPortArgs) {
         try {
@@ -34,6 +39,8 @@ public class AppClient {
         if (!initializeConnectionAddress(args)) return;
         HashMap<String,Commands> commands = new HashMap<>();
         commands.put("show",new Commands("show",1, ProcessingCode.OK));
+        commands.put("show_page",new Commands("show_page",3, ProcessingCode.OK));
+        commands.put("show_after",new Commands("show_after",3, ProcessingCode.OK));
         commands.put("insert", new Commands("insert",2,ProcessingCode.OBJECT));
         commands.put("help",new Commands("help",1,ProcessingCode.OK));
         commands.put("history", new Commands("history",1,ProcessingCode.OK));
@@ -41,8 +48,13 @@ public class AppClient {
         commands.put("filter_contains_name",new Commands("filter_contains_name",2,ProcessingCode.OK));
         commands.put("filter_greater_than_form_of_education", new Commands("filter_greater_than_form_of_education",2,ProcessingCode.OK));
         commands.put("filter_less_than_transferred_students", new Commands("filter_less_than_transferred_students",2,ProcessingCode.OK));
+        commands.put("filter_greater_than_transferred_students", new Commands("filter_greater_than_transferred_students",2,ProcessingCode.OK));
+        commands.put("filter_between_transferred_students", new Commands("filter_between_transferred_students",3,ProcessingCode.OK));
+        commands.put("filter_by_enums", new Commands("filter_by_enums",2,ProcessingCode.OK));
         commands.put("info", new Commands("info",1,ProcessingCode.OK));
         commands.put("remove_key",new Commands("remove_key",2,ProcessingCode.OK));
+        commands.put("get_by_id",new Commands("get_by_id",2,ProcessingCode.OK));
+        commands.put("remove_by_id",new Commands("remove_by_id",2,ProcessingCode.OK));
         commands.put("update",new Commands("update",2,ProcessingCode.OBJECT));
         commands.put("remove_lower", new Commands("remove_lower",1,ProcessingCode.OBJECT));
         commands.put("replace_if_greater", new Commands("replace_if_greater",2,ProcessingCode.OBJECT));
@@ -52,7 +64,7 @@ public class AppClient {
         Scanner userScanner = new Scanner(System.in);
         QueryManager queryManager = new QueryManager(userScanner);
         UserHandler userHandler = new UserHandler(userScanner,commands,queryManager);
-        Client client = new Client("localhost",port,RECONNECTION_TIMEOUT,MAX_RECONNECTION_ATTEMPTS,userHandler);
+        Client client = new Client("localhost",port,RECONNECTION_TIMEOUT,MAX_RECONNECTION_ATTEMPTS,userHandler,WIRE_FORMAT,PIPELINE_WINDOW,SCRIPT_BATCH);
         client.run();
         userScanner.close();
     }
@@ -6,31 +6,48 @@ import common.exceptions.NotInDeclaredLimitsException;
 import common.interaction.Request;
 import common.interaction.Response;
 import common.interaction.ResponseCode;
+import common.interaction.ScriptBatch;
+import common.interaction.WireFormat;
 
 import java.io.*;
-import java.net.InetSocketAddress;
-import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
 public class Client {
+    private static final int MAX_BATCH_SIZE = 10000;
     private final String host;
     private final int port;
     private final int reconnectionTimeout;
     private int reconnectionAttempts = 0;
     private final int maxReconnectionAttempts;
     private final UserHandler userHandler;
-    private SocketChannel socketChannel;
-    private ObjectOutputStream serverWriter;
-    private ObjectInputStream serverReader;
+    private final WireFormat wireFormat;
+    private final int pipelineWindow;
+    private final boolean scriptBatch;
+    private String scriptName = "";
+    private ServerConnection serverConnection;
     private boolean connection;
     public Client(String host, int port, int reconnectionTimeout, int maxReconnectionAttempts, UserHandler userHandler){
+        this(host, port, reconnectionTimeout, maxReconnectionAttempts, userHandler, WireFormat.SERIALIZED, 1, false);
+    }
+
+    /**
+     * @param wireFormat Format of requests, the server answers in the same format
+     * @param pipelineWindow How many script commands are sent before the answers are read, 1 - one by one
+     * @param scriptBatch Send script commands to the server in batches instead of one by one
+     */
+    public Client(String host, int port, int reconnectionTimeout, int maxReconnectionAttempts, UserHandler userHandler, WireFormat wireFormat, int pipelineWindow, boolean scriptBatch){
         this.host = host;
         this.port = port;
         this.reconnectionTimeout = reconnectionTimeout;
         this.maxReconnectionAttempts = maxReconnectionAttempts;
         this.userHandler = userHandler;
+        this.wireFormat = wireFormat;
+        this.pipelineWindow = Math.max(1, pipelineWindow);
+        this.scriptBatch = scriptBatch;
     }
 
     public void run(){
@@ -58,7 +75,7 @@ public class Client {
                 }
                 reconnectionAttempts++;
             }
-            if(socketChannel != null) socketChannel.close();
+            if(serverConnection != null) serverConnection.close();
             System.out.println("Работа клиента успешно завершена.");
         }catch (IOException | ClassNotFoundException err){
             System.out.println("Произошла ошибка при попытке завершить соединение с сервером!");
@@ -69,11 +86,10 @@ public class Client {
     public void connectToServer(){
         try{
             if(reconnectionAttempts >= 1) System.out.println("Повторное соединение с сервером...");
-            socketChannel = SocketChannel.open(new InetSocketAddress(host,port));
+            serverConnection = new ServerConnection(host, port, wireFormat);
+            serverConnection.setChunkHandler(chunk -> System.out.println(chunk.getResponseBody()));
             System.out.println("Соединение с сервером успешно установлено");
             System.out.println("Ожидание разрешения на обмен данными...");
-            serverWriter = new ObjectOutputStream(socketChannel.socket().getOutputStream());
-            serverReader = new ObjectInputStream(socketChannel.socket().getInputStream());
             System.out.println("Разрешение на обмен данными получено");
             reconnectionAttempts = 0;
 
@@ -94,9 +110,19 @@ public class Client {
 
                 requestToServer = serverRespone != null ? userHandler.handle(serverRespone.getResponseCode()):userHandler.handle(null);
                 if(requestToServer.isEmpty()) continue;
-                serverWriter.writeObject(requestToServer);
-                serverRespone = (Response) serverReader.readObject();
-                System.out.println(serverRespone.getResponseBody());
+                List<Request> window = new ArrayList<>();
+                if(requestToServer.getCommandName()[0].equals("execute_script")) scriptName = requestToServer.getCommandName()[1];
+                if(scriptBatch && userHandler.hasScriptLines()){
+                    Request batch = collectBatch(requestToServer);
+                    window.add(batch);
+                    requestToServer = lastOf((ScriptBatch) batch.getCommandObjectArgument(), requestToServer);
+                }
+                else window.add(requestToServer);
+                while(!scriptBatch && window.size() < pipelineWindow && !requestToServer.getCommandName()[0].equals("exit") && userHandler.hasScriptLines()){
+                    requestToServer = userHandler.handle(null);
+                    if(!requestToServer.isEmpty()) window.add(requestToServer);
+                }
+                serverRespone = exchange(window);
             } catch(NullPointerException err){
                 continue;
             }catch (InvalidClassException err){
@@ -136,4 +162,45 @@ public class Client {
         } while(!requestToServer.getCommandName()[0].equals("exit"));
         return false;
     }
+
+    /**
+     * Read commands of the running script up to exit or MAX_BATCH_SIZE commands.
+     * Nested execute_script commands only switch the file, they are not sent.
+     * @param first Command, which has already been read
+     * @return execute_script request carrying the commands
+     */
+    private Request collectBatch(Request first) throws FileNotFoundException {
+        List<Request> requests = new ArrayList<>();
+        Request request = first;
+        if(!first.getCommandName()[0].equals("execute_script")) requests.add(first);
+        while(requests.size() < MAX_BATCH_SIZE && !request.getCommandName()[0].equals("exit") && userHandler.hasScriptLines()){
+            request = userHandler.handle(null);
+            if(request.isEmpty() || request.getCommandName()[0].equals("execute_script")) continue;
+            requests.add(request);
+        }
+        return new Request(new String[]{"execute_script", scriptName}, new ScriptBatch(requests));
+    }
+
+    private static Request lastOf(ScriptBatch batch, Request otherwise){
+        List<Request> requests = batch.getRequests();
+        return requests.isEmpty() ? otherwise : requests.get(requests.size() - 1);
+    }
+
+    /**
+     * Send all requests at once, then read the answers, which come in the same order.
+     * Script is stopped after the window if any of the commands failed.
+     * @return first failed answer, or the last answer
+     */
+    private Response exchange(List<Request> window) throws IOException, ClassNotFoundException {
+        for(Request request : window) serverConnection.send(request);
+        serverConnection.flush();
+        Response failed = null;
+        Response last = null;
+        for(Request request : window){
+            last = serverConnection.receive(request);
+            System.out.println(last.getResponseBody());
+            if(failed == null && last.getResponseCode() != ResponseCode.OK) failed = last;
+        }
+        return failed != null ? failed : last;
+    }
 }
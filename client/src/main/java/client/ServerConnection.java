@@ -0,0 +1,88 @@
+package client;
+
+import common.interaction.FrameCodec;
+import common.interaction.Request;
+import common.interaction.Response;
+import common.interaction.ResponseCode;
+import common.interaction.WireFormat;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+/**
+ * Connection to the server. Requests are numbered and written as frames, answers come in the order of the requests.
+ * A long answer may come in several CHUNK responses before the last one.
+ */
+public class ServerConnection implements Closeable {
+    private final SocketChannel socketChannel;
+    private final DataOutputStream serverWriter;
+    private final DataInputStream serverReader;
+    private final WireFormat wireFormat;
+    private long nextRequestId = 1;
+    private Consumer<Response> chunkHandler = chunk -> {};
+
+    /**
+     * @param wireFormat Format of requests, the server answers in the same format
+     * @throws IOException If the server can not be reached
+     */
+    public ServerConnection(String host, int port, WireFormat wireFormat) throws IOException {
+        this.wireFormat = wireFormat;
+        socketChannel = SocketChannel.open(new InetSocketAddress(host, port));
+        serverWriter = new DataOutputStream(new BufferedOutputStream(socketChannel.socket().getOutputStream()));
+        serverReader = new DataInputStream(new BufferedInputStream(socketChannel.socket().getInputStream()));
+    }
+
+    /**
+     * Number the request and write it, it is sent on flush
+     */
+    public void send(Request request) throws IOException {
+        request.setId(nextRequestId++);
+        byte[] body = FrameCodec.encode(request, wireFormat);
+        serverWriter.writeInt(body.length);
+        serverWriter.write(body);
+    }
+
+    /**
+     * @param chunkHandler Receiver of the parts of long answers, by default they are dropped
+     */
+    public void setChunkHandler(Consumer<Response> chunkHandler){
+        this.chunkHandler = chunkHandler;
+    }
+
+    public void flush() throws IOException {
+        serverWriter.flush();
+    }
+
+    /**
+     * Read the answer to the oldest request, which is not answered yet.
+     * Its parts are given to the chunk handler as they come.
+     * @param request that request
+     * @return Last response to the request
+     * @throws StreamCorruptedException If the answer is to another request
+     */
+    public Response receive(Request request) throws IOException, ClassNotFoundException {
+        while(true){
+            Response response = (Response) FrameCodec.readFrame(serverReader);
+            if(response.getRequestId() != 0 && response.getRequestId() != request.getId())
+                throw new StreamCorruptedException("Получен ответ на другой запрос!");
+            if(response.getResponseCode() != ResponseCode.CHUNK) return response;
+            chunkHandler.accept(response);
+        }
+    }
+
+    /**
+     * Send the request and wait for the answer
+     */
+    public Response call(Request request) throws IOException, ClassNotFoundException {
+        send(request);
+        flush();
+        return receive(request);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socketChannel.close();
+    }
+}
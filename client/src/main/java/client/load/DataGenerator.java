@@ -0,0 +1,50 @@
+package client.load;
+
+import common.datas.StudyGroupGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Writes CSV file with generated study groups, which the server can load.
+ * Rows are written one by one, so the size of the file is not limited by memory.
+ * <pre>
+ * java -cp client.jar client.load.DataGenerator &lt;file&gt; &lt;rows&gt; [seed]
+ * </pre>
+ */
+public class DataGenerator {
+    private static final int PROGRESS_STEP = 1000000;
+
+    public static void main(String[] args) {
+        if(args.length < 2 || args.length > 3){
+            System.out.println("Использование: DataGenerator <файл> <количество строк> [seed]");
+            return;
+        }
+        long rows;
+        long seed;
+        try{
+            rows = Long.parseLong(args[1]);
+            seed = args.length == 3 ? Long.parseLong(args[2]) : 42;
+            if(rows < 0) throw new NumberFormatException();
+        }catch (NumberFormatException err){
+            System.out.println("Количество строк и seed должны быть представлены числом!");
+            return;
+        }
+        StudyGroupGenerator generator = new StudyGroupGenerator(seed);
+        long start = System.nanoTime();
+        try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)){
+            for(long id = 1; id <= rows; id++){
+                writer.write(StudyGroupGenerator.toCsvRow(String.valueOf(id), generator.next(id)));
+                writer.newLine();
+                if(id % PROGRESS_STEP == 0) System.out.println("Записано строк: " + id);
+            }
+        }catch (IOException err){
+            System.out.println("Не удалось записать файл " + args[0] + "!");
+            return;
+        }
+        System.out.printf("Записано строк: %d за %.1f с%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+}
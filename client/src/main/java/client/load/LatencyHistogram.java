@@ -0,0 +1,66 @@
+package client.load;
+
+/**
+ * Histogram of latencies in nanoseconds with logarithmic buckets. Every power of two is split
+ * into 32 buckets, so a percentile is off by at most 1/32 of its value. Not thread safe,
+ * every thread records its own histogram, they are merged afterwards.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 32;
+    private static final int EXACT = 2 * SUB_BUCKETS;
+    private final long[] counts = new long[EXACT + (63 - 6) * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    private static int indexOf(long value) {
+        if(value < EXACT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+        return EXACT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return greatest value, which falls into the bucket
+     */
+    private static long highestOf(int index) {
+        if(index < EXACT) return index;
+        int shift = (index - EXACT) / SUB_BUCKETS + 1;
+        long subBucket = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        if(nanos < 0) nanos = 0;
+        counts[indexOf(nanos)]++;
+        total++;
+        if(nanos > max) max = nanos;
+    }
+
+    public void add(LatencyHistogram other) {
+        for(int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return latency, which the given percent of the records do not exceed
+     */
+    public long percentile(double percentile) {
+        if(total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++){
+            seen += counts[i];
+            if(seen >= rank) return Math.min(highestOf(i), max);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,219 @@
+package client.load;
+
+import client.ServerConnection;
+import common.datas.FormOfEducation;
+import common.datas.StudyGroupGenerator;
+import common.interaction.Request;
+import common.interaction.Response;
+import common.interaction.ResponseCode;
+import common.interaction.WireFormat;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test: several threads, each with its own connection, send a mix of commands to the server
+ * and measure the time until the answer. With a given rate every request has its planned send time
+ * and latency is counted from it, so a slow server is not hidden by requests, which were sent late.
+ * <pre>
+ * java -Dload.threads=8 -Dload.rate=0 -Dload.duration=30 -cp client.jar client.load.LoadTest &lt;port&gt;
+ * </pre>
+ * Properties: load.host, load.threads, load.rate (requests per second of all threads, 0 - no limit),
+ * load.duration and load.warmup (seconds), load.ids (ids 1..n used by update and get_by_id),
+ * load.mix (weights of insert, update, remove_key, get_by_id, show, filter), client.protocol.
+ */
+public class LoadTest {
+    public static final String HOST = System.getProperty("load.host", "localhost");
+    public static final int THREADS = Integer.getInteger("load.threads", 8);
+    public static final int RATE = Integer.getInteger("load.rate", 0);
+    public static final int DURATION = Integer.getInteger("load.duration", 30);
+    public static final int WARMUP = Integer.getInteger("load.warmup", 5);
+    public static final long IDS = Long.getLong("load.ids", 1000);
+    public static final String MIX = System.getProperty("load.mix", "get_by_id=50,filter=20,insert=10,update=10,remove_key=9,show=1");
+    public static final WireFormat WIRE_FORMAT = System.getProperty("client.protocol", "binary").equals("serialized")
+            ? WireFormat.SERIALIZED : WireFormat.BINARY;
+    private static final List<String> OPERATIONS = Arrays.asList("insert", "update", "remove_key", "get_by_id", "show", "filter");
+
+    public static void main(String[] args) throws InterruptedException {
+        if(args.length != 1){
+            System.out.println("Использование: LoadTest <port>");
+            return;
+        }
+        int port;
+        int[] weights;
+        try{
+            port = Integer.parseInt(args[0]);
+            weights = parseMix(MIX);
+        }catch (IllegalArgumentException err){
+            System.out.println("Неверные параметры нагрузки: " + err.getMessage());
+            return;
+        }
+        System.out.println("Нагрузка: потоков " + THREADS + ", запросов в секунду " + (RATE > 0 ? RATE : "без ограничения")
+                + ", " + WARMUP + " + " + DURATION + " с, смесь " + MIX);
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP * 1_000_000_000L;
+        long end = measureFrom + DURATION * 1_000_000_000L;
+        long interval = RATE > 0 ? THREADS * 1_000_000_000L / RATE : 0;
+        List<Worker> workers = new ArrayList<>();
+        for(int i = 0; i < THREADS; i++){
+            Worker worker = new Worker(i, port, weights, start, measureFrom, end, interval);
+            workers.add(worker);
+            worker.start();
+        }
+        for(Worker worker : workers) worker.join();
+        report(workers);
+    }
+
+    /**
+     * @param mix weights like insert=10,show=1
+     * @return weights in the order of OPERATIONS
+     */
+    static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.size()];
+        for(String part : mix.split(",")){
+            String[] pair = part.trim().split("=");
+            int operation = OPERATIONS.indexOf(pair[0]);
+            if(pair.length != 2 || operation < 0) throw new IllegalArgumentException(part);
+            weights[operation] = Integer.parseInt(pair[1]);
+            if(weights[operation] < 0) throw new IllegalArgumentException(part);
+        }
+        if(Arrays.stream(weights).sum() == 0) throw new IllegalArgumentException(mix);
+        return weights;
+    }
+
+    private static void report(List<Worker> workers) {
+        LatencyHistogram all = new LatencyHistogram();
+        long errors = 0;
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s%n", "команда", "запросов", "ошибок", "p50 мс", "p99 мс", "p999 мс", "max мс");
+        for(int operation = 0; operation < OPERATIONS.size(); operation++){
+            LatencyHistogram histogram = new LatencyHistogram();
+            long operationErrors = 0;
+            for(Worker worker : workers){
+                histogram.add(worker.histograms[operation]);
+                operationErrors += worker.errors[operation];
+            }
+            if(histogram.getTotal() == 0) continue;
+            all.add(histogram);
+            errors += operationErrors;
+            printRow(OPERATIONS.get(operation), histogram, operationErrors);
+        }
+        printRow("всего", all, errors);
+        System.out.printf("Пропускная способность: %.1f запросов в секунду%n", all.getTotal() / (double) DURATION);
+        for(Worker worker : workers)
+            if(worker.failure != null) System.out.println("Поток " + worker.getName() + " остановлен: " + worker.failure);
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errors) {
+        System.out.printf("%-12s %10d %8d %10.3f %10.3f %10.3f %10.3f%n", name, histogram.getTotal(), errors,
+                histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6, histogram.percentile(99.9) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Thread with its own connection, which sends one request at a time
+     */
+    private static class Worker extends Thread {
+        private final int number;
+        private final int port;
+        private final int[] weights;
+        private final int totalWeight;
+        private final long start;
+        private final long measureFrom;
+        private final long end;
+        private final long interval;
+        private final StudyGroupGenerator generator;
+        private final ArrayDeque<String> insertedKeys = new ArrayDeque<>();
+        private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.size()];
+        private final long[] errors = new long[OPERATIONS.size()];
+        private long nextKey;
+        private String failure;
+
+        Worker(int number, int port, int[] weights, long start, long measureFrom, long end, long interval) {
+            super("load-" + number);
+            this.number = number;
+            this.port = port;
+            this.weights = weights;
+            this.totalWeight = Arrays.stream(weights).sum();
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.interval = interval;
+            this.generator = new StudyGroupGenerator(number);
+            for(int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        }
+
+        @Override
+        public void run() {
+            // threads start at different offsets within the interval, so their requests do not come in bursts
+            long planned = start + (interval * number) / THREADS;
+            try(ServerConnection connection = new ServerConnection(HOST, port, WIRE_FORMAT)){
+                while(true){
+                    long now = System.nanoTime();
+                    if(interval > 0){
+                        if(planned >= end) break;
+                        if(planned > now) LockSupport.parkNanos(planned - now);
+                    }else{
+                        if(now >= end) break;
+                        planned = now;
+                    }
+                    int operation = nextOperation();
+                    Request request = newRequest(operation);
+                    if(request == null){
+                        operation = OPERATIONS.indexOf("insert");
+                        request = newRequest(operation);
+                    }
+                    Response response = connection.call(request);
+                    long finished = System.nanoTime();
+                    if(planned >= measureFrom){
+                        histograms[operation].record(finished - planned);
+                        if(response.getResponseCode() != ResponseCode.OK) errors[operation]++;
+                    }
+                    planned += interval;
+                }
+            }catch (IOException | ClassNotFoundException err){
+                failure = "соединение с сервером разорвано (" + err.getMessage() + ")";
+            }
+        }
+
+        private int nextOperation() {
+            int choice = ThreadLocalRandom.current().nextInt(totalWeight);
+            int operation = 0;
+            while(choice >= weights[operation]) choice -= weights[operation++];
+            return operation;
+        }
+
+        /**
+         * @return request of the operation, or null if there is no inserted key to remove
+         */
+        private Request newRequest(int operation) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String id = String.valueOf(1 + random.nextLong(IDS));
+            switch (OPERATIONS.get(operation)){
+                case "insert":
+                    String key = "load-" + number + "-" + nextKey++;
+                    insertedKeys.push(key);
+                    return new Request(new String[]{"insert", key}, generator.nextRaw());
+                case "update":
+                    return new Request(new String[]{"update", id}, generator.nextRaw());
+                case "remove_key":
+                    if(insertedKeys.isEmpty()) return null;
+                    return new Request(new String[]{"remove_key", insertedKeys.pop()});
+                case "get_by_id":
+                    return new Request(new String[]{"get_by_id", id});
+                case "show":
+                    return new Request(new String[]{"show"});
+                default:
+                    switch (random.nextInt(3)){
+                        case 0:
+                            return new Request(new String[]{"filter_contains_name", generator.nextName().substring(0, 3)});
+                        case 1:
+                            return new Request(new String[]{"filter_less_than_transferred_students", String.valueOf(1 + random.nextInt(10))});
+                        default:
+                            FormOfEducation[] forms = FormOfEducation.values();
+                            return new Request(new String[]{"filter_greater_than_form_of_education", forms[random.nextInt(forms.length)].name()});
+                    }
+            }
+        }
+    }
+}
@@ -113,4 +113,15 @@ public class UserHandler {
         return !scannerStack.isEmpty();
     }
 
+    /**
+     * @return true if the next command will be read from a script, not from the user
+     */
+    public boolean hasScriptLines() {
+        if(!fileMode()) return false;
+        if(userScanner.hasNextLine()) return true;
+        for(int i = 1; i < scannerStack.size(); i++)
+            if(scannerStack.get(i).hasNextLine()) return true;
+        return false;
+    }
+
 }
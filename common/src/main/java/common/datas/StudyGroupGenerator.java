@@ -0,0 +1,88 @@
+package common.datas;
+
+import common.interaction.StudyGroupRaw;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Generator of random study groups for load tests and benchmarks.
+ * Values keep the limits, which the client checks on input, and contain no commas,
+ * so CSV rows of them are read back by the server.
+ */
+public class StudyGroupGenerator {
+    private static final String[] SUBJECTS = {"Math", "Physic", "Chemistry", "Biology", "History", "Informatics", "Economics", "Art"};
+    private static final String[] ADMINS = {"Noah", "Emma", "Kim", "Liam", "Olivia", "Mia", "Ivan", "Anna", "Chen", "Marco"};
+    private static final String[][] CITIES = {
+            {"Berlin", "Munich", "Hamburg"},
+            {"Paris", "Lyon", "Nice"},
+            {"Madrid", "Barcelona", "Seville"},
+            {"Beijing", "Shanghai", "Shenzhen"},
+            {"Rome", "Milan", "Naples"}
+    };
+    private static final String[] PASSPORT_PREFIXES = {"DE", "FR", "ES", "CN", "IT"};
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+    private static final int DATE_RANGE = 3 * 365;
+    private final Random random;
+
+    public StudyGroupGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return group name like Math-3110
+     */
+    public String nextName() {
+        return SUBJECTS[random.nextInt(SUBJECTS.length)] + "-" + (1000 + random.nextInt(9000));
+    }
+
+    public StudyGroupRaw nextRaw() {
+        return nextRaw(nextName());
+    }
+
+    public StudyGroupRaw nextRaw(String name) {
+        long studentsCount = 5 + random.nextInt(36);
+        return new StudyGroupRaw(
+                name,
+                new Coordinates(random.nextInt(2001) - 1000, random.nextInt(2000001) - 1000000L),
+                studentsCount,
+                1 + random.nextInt((int) studentsCount),
+                FormOfEducation.values()[random.nextInt(FormOfEducation.values().length)],
+                Semester.values()[random.nextInt(Semester.values().length)],
+                nextPerson());
+    }
+
+    public StudyGroup next(long id) {
+        StudyGroupRaw raw = nextRaw();
+        return new StudyGroup(id,
+                raw.getName(),
+                raw.getCoordinates(),
+                FIRST_DATE.plusDays(random.nextInt(DATE_RANGE)),
+                raw.getStudentsCount(),
+                raw.getTransferredStudents(),
+                raw.getFormOfEducation(),
+                raw.getSemesterEnum(),
+                raw.getGroupAdmin());
+    }
+
+    private Person nextPerson() {
+        int country = random.nextInt(Country.values().length);
+        StringBuilder passportID = new StringBuilder(PASSPORT_PREFIXES[country]);
+        for (int i = 10 + random.nextInt(5); i > 0; i--) passportID.append((char) ('0' + random.nextInt(10)));
+        String[] cities = CITIES[country];
+        Location location = new Location(
+                (random.nextInt(20001) - 10000) / 10f,
+                (long) random.nextInt(20001) - 10000,
+                random.nextInt(2001) - 1000,
+                cities[random.nextInt(cities.length)]);
+        return new Person(ADMINS[random.nextInt(ADMINS.length)], passportID.toString(), Country.values()[country], location);
+    }
+
+    /**
+     * @return row of the server CSV file: id, key, then the fields of the group
+     */
+    public static String toCsvRow(String key, StudyGroup studyGroup) {
+        String fields = studyGroup.toString();
+        return studyGroup.getId() + "," + key + fields.substring(fields.indexOf(','));
+    }
+}
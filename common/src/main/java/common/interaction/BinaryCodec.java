@@ -0,0 +1,275 @@
+package common.interaction;
+
+import common.datas.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of Request, Response and StudyGroupRaw.
+ * <pre>
+ * body     = MAGIC, VERSION, type, message
+ * request  = id, opcode [name], count of other words, words, argument tag [argument]
+ * response = request id, response code, text
+ * </pre>
+ * Numbers are zigzag varints, strings are UTF-8 with varint length + 1 (0 - null),
+ * enums are ordinal + 1 (0 - null). Known command names are sent as their opcode,
+ * opcode 0 is followed by the name itself.
+ */
+public final class BinaryCodec {
+    /**
+     * First byte of every binary body, a Java serialization stream never starts with it
+     */
+    public static final byte MAGIC = (byte) 0xB1;
+    private static final byte VERSION = 2;
+    private static final byte REQUEST = 1;
+    private static final byte RESPONSE = 2;
+    private static final byte NO_ARGUMENT = 0;
+    private static final byte STUDY_GROUP_RAW = 1;
+    private static final byte SCRIPT_BATCH = 2;
+    private static final byte SERIALIZED_ARGUMENT = 127;
+    private static final String[] COMMANDS = {
+            "help", "info", "show", "insert", "update", "remove_key", "clear", "execute_script", "exit",
+            "remove_lower", "replace_if_greater", "history", "filter_contains_name",
+            "filter_greater_than_form_of_education", "filter_less_than_transferred_students",
+            "get_by_id", "remove_by_id", "exit_server", "show_page", "show_after",
+            "filter_greater_than_transferred_students", "filter_between_transferred_students", "filter_by_enums"
+    };
+    private static final Map<String, Integer> OPCODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < COMMANDS.length; i++) OPCODES.put(COMMANDS[i], i + 1);
+    }
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * @param message Request or Response
+     * @return body bytes
+     * @throws NotSerializableException if message is of other type
+     */
+    public static byte[] encode(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        if (message instanceof Request) {
+            out.writeByte(REQUEST);
+            writeRequest(out, (Request) message);
+        } else if (message instanceof Response) {
+            out.writeByte(RESPONSE);
+            writeResponse(out, (Response) message);
+        } else {
+            throw new NotSerializableException(message == null ? "null" : message.getClass().getName());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param body body bytes, starting with MAGIC
+     * @param length length of the body
+     * @return Request or Response
+     */
+    public static Object decode(byte[] body, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+        if (in.readByte() != MAGIC) throw new StreamCorruptedException("Неизвестный формат сообщения");
+        byte version = in.readByte();
+        if (version != VERSION) throw new StreamCorruptedException("Неподдерживаемая версия протокола: " + version);
+        byte type = in.readByte();
+        if (type == REQUEST) return readRequest(in);
+        if (type == RESPONSE) return readResponse(in);
+        throw new StreamCorruptedException("Неизвестный тип сообщения: " + type);
+    }
+
+    public static void writeRequest(DataOutput out, Request request) throws IOException {
+        writeVarLong(out, request.getId());
+        String[] words = request.getCommandName();
+        Integer opcode = OPCODES.get(words[0]);
+        writeVarLong(out, opcode == null ? 0 : opcode);
+        if (opcode == null) writeString(out, words[0]);
+        writeVarLong(out, words.length - 1);
+        for (int i = 1; i < words.length; i++) writeString(out, words[i]);
+        Object argument = request.getCommandObjectArgument();
+        if (argument == null) {
+            out.writeByte(NO_ARGUMENT);
+        } else if (argument instanceof StudyGroupRaw) {
+            out.writeByte(STUDY_GROUP_RAW);
+            writeStudyGroupRaw(out, (StudyGroupRaw) argument);
+        } else if (argument instanceof ScriptBatch) {
+            out.writeByte(SCRIPT_BATCH);
+            List<Request> requests = ((ScriptBatch) argument).getRequests();
+            writeVarLong(out, requests.size());
+            for (Request command : requests) writeRequest(out, command);
+        } else {
+            out.writeByte(SERIALIZED_ARGUMENT);
+            byte[] serialized = FrameCodec.encode((Serializable) argument);
+            writeVarLong(out, serialized.length);
+            out.write(serialized);
+        }
+    }
+
+    public static Request readRequest(DataInput in) throws IOException {
+        return readRequest(in, true);
+    }
+
+    /**
+     * @param batchAllowed false for commands of a script, which cannot carry a script themselves
+     */
+    private static Request readRequest(DataInput in, boolean batchAllowed) throws IOException {
+        long id = readVarLong(in);
+        int opcode = readLength(in);
+        if (opcode > COMMANDS.length) throw new StreamCorruptedException("Неизвестная команда: " + opcode);
+        String name = opcode == 0 ? readString(in) : COMMANDS[opcode - 1];
+        String[] words = new String[readLength(in) + 1];
+        words[0] = name;
+        for (int i = 1; i < words.length; i++) words[i] = readString(in);
+        byte tag = in.readByte();
+        Serializable argument;
+        if (tag == NO_ARGUMENT) {
+            argument = null;
+        } else if (tag == STUDY_GROUP_RAW) {
+            argument = readStudyGroupRaw(in);
+        } else if (tag == SCRIPT_BATCH) {
+            if (!batchAllowed) throw new StreamCorruptedException("Вложенный скрипт недопустим");
+            int size = readLength(in);
+            List<Request> requests = new ArrayList<>(Math.min(size, 1024));
+            for (int i = 0; i < size; i++) requests.add(readRequest(in, false));
+            argument = new ScriptBatch(requests);
+        } else if (tag == SERIALIZED_ARGUMENT) {
+            byte[] serialized = new byte[readLength(in)];
+            in.readFully(serialized);
+            try {
+                argument = (Serializable) FrameCodec.decode(serialized, serialized.length);
+            } catch (ClassNotFoundException err) {
+                throw new InvalidClassException(err.getMessage());
+            }
+        } else {
+            throw new StreamCorruptedException("Неизвестный аргумент команды: " + tag);
+        }
+        Request request = new Request(words, argument);
+        request.setId(id);
+        return request;
+    }
+
+    public static void writeResponse(DataOutput out, Response response) throws IOException {
+        writeVarLong(out, response.getRequestId());
+        writeEnum(out, response.getResponseCode());
+        writeString(out, response.getResponseBody());
+    }
+
+    public static Response readResponse(DataInput in) throws IOException {
+        long requestId = readVarLong(in);
+        return new Response(readEnum(in, ResponseCode.values()), readString(in), requestId);
+    }
+
+    public static void writeStudyGroupRaw(DataOutput out, StudyGroupRaw studyGroupRaw) throws IOException {
+        writeString(out, studyGroupRaw.getName());
+        writeVarLong(out, studyGroupRaw.getCoordinates().getX());
+        writeVarLong(out, studyGroupRaw.getCoordinates().getY());
+        writeNullableLong(out, studyGroupRaw.getStudentsCount());
+        writeVarLong(out, studyGroupRaw.getTransferredStudents());
+        writeEnum(out, studyGroupRaw.getFormOfEducation());
+        writeEnum(out, studyGroupRaw.getSemesterEnum());
+        Person groupAdmin = studyGroupRaw.getGroupAdmin();
+        writeString(out, groupAdmin.getName());
+        writeString(out, groupAdmin.getPassportID());
+        writeEnum(out, groupAdmin.getCountry());
+        Location location = groupAdmin.getLocation();
+        out.writeBoolean(location.getX() != null);
+        if (location.getX() != null) out.writeFloat(location.getX());
+        writeNullableLong(out, location.getY());
+        writeVarLong(out, location.getZ());
+        writeString(out, location.getName());
+    }
+
+    public static StudyGroupRaw readStudyGroupRaw(DataInput in) throws IOException {
+        String name = readString(in);
+        Coordinates coordinates = new Coordinates((int) readVarLong(in), readVarLong(in));
+        Long studentsCount = readNullableLong(in);
+        long transferredStudents = readVarLong(in);
+        FormOfEducation formOfEducation = readEnum(in, FormOfEducation.values());
+        Semester semester = readEnum(in, Semester.values());
+        String adminName = readString(in);
+        String passportID = readString(in);
+        Country country = readEnum(in, Country.values());
+        Float x = in.readBoolean() ? in.readFloat() : null;
+        Long y = readNullableLong(in);
+        int z = (int) readVarLong(in);
+        String locationName = readString(in);
+        Person groupAdmin = new Person(adminName, passportID, country, new Location(x, y, z, locationName));
+        return new StudyGroupRaw(name, coordinates, studentsCount, transferredStudents, formOfEducation, semester, groupAdmin);
+    }
+
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new StreamCorruptedException("Слишком длинное число");
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) return null;
+        if (length < 0 || length - 1 > FrameCodec.MAX_FRAME_SIZE) throw new StreamCorruptedException("Недопустимая длина строки");
+        byte[] bytes = new byte[(int) length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read non-negative count, which can not be larger than a frame
+     */
+    private static int readLength(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > FrameCodec.MAX_FRAME_SIZE) throw new StreamCorruptedException("Недопустимая длина: " + length);
+        return (int) length;
+    }
+
+    private static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) writeVarLong(out, value);
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? readVarLong(in) : null;
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private static <E> E readEnum(DataInput in, E[] values) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal == 0) return null;
+        if (ordinal > values.length) throw new StreamCorruptedException("Неверное значение перечисления");
+        return values[ordinal - 1];
+    }
+}
@@ -0,0 +1,126 @@
+package common.interaction;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Length-prefixed framing of messages between client and server.
+ * Every frame is a 4-byte big-endian body length followed by the body,
+ * so a non-blocking reader can tell where one message ends without decoding it.
+ * The body is either a Java serialization stream or a BinaryCodec message,
+ * the format is recognized by the first byte of the body.
+ */
+public final class FrameCodec {
+    public static final int HEADER_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Serialize message into frame body
+     * @param message Request or Response
+     * @return body bytes
+     */
+    public static byte[] encode(Serializable message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes)) {
+            objectOutputStream.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode message into frame body
+     * @param message Request or Response
+     * @param format body format
+     * @return body bytes
+     */
+    public static byte[] encode(Serializable message, WireFormat format) throws IOException {
+        return format == WireFormat.BINARY ? BinaryCodec.encode(message) : encode(message);
+    }
+
+    /**
+     * @return format of the frame body
+     */
+    public static WireFormat formatOf(byte[] body, int length) {
+        return length > 0 && body[0] == BinaryCodec.MAGIC ? WireFormat.BINARY : WireFormat.SERIALIZED;
+    }
+
+    /**
+     * Decode frame body of any format
+     * @param body body bytes
+     * @param length length of the body
+     * @return Request or Response
+     */
+    public static Object decode(byte[] body, int length) throws IOException, ClassNotFoundException {
+        if (formatOf(body, length) == WireFormat.BINARY) return BinaryCodec.decode(body, length);
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(body, 0, length))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+    /**
+     * @return whole frame (header and body) ready for channel write
+     */
+    public static ByteBuffer toFrame(Serializable message) throws IOException {
+        return toFrame(message, WireFormat.SERIALIZED);
+    }
+
+    /**
+     * @return whole frame (header and body in the format) ready for channel write
+     */
+    public static ByteBuffer toFrame(Serializable message, WireFormat format) throws IOException {
+        byte[] body = encode(message, format);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        frame.putInt(body.length).put(body);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Write one frame to blocking stream
+     */
+    public static void writeFrame(DataOutputStream outputStream, Serializable message) throws IOException {
+        writeFrame(outputStream, message, WireFormat.SERIALIZED);
+    }
+
+    /**
+     * Write one frame in the format to blocking stream
+     */
+    public static void writeFrame(DataOutputStream outputStream, Serializable message, WireFormat format) throws IOException {
+        byte[] body = encode(message, format);
+        outputStream.writeInt(body.length);
+        outputStream.write(body);
+        outputStream.flush();
+    }
+
+    /**
+     * Read one frame from blocking stream
+     * @throws EOFException if connection closed
+     */
+    public static Object readFrame(DataInputStream inputStream) throws IOException, ClassNotFoundException {
+        byte[] body = readBody(inputStream);
+        return decode(body, body.length);
+    }
+
+    /**
+     * Read body of one frame from blocking stream without decoding it
+     * @throws EOFException if connection closed
+     */
+    public static byte[] readBody(DataInputStream inputStream) throws IOException {
+        int length = inputStream.readInt();
+        checkLength(length);
+        byte[] body = new byte[length];
+        inputStream.readFully(body);
+        return body;
+    }
+
+    /**
+     * @throws StreamCorruptedException if announced frame length can not be valid
+     */
+    public static void checkLength(int length) throws StreamCorruptedException {
+        if (length < 0 || length > MAX_FRAME_SIZE)
+            throw new StreamCorruptedException("Недопустимый размер кадра: " + length);
+    }
+}
@@ -7,6 +7,7 @@ public class Request implements Serializable {
     private static final long serialVersionUID = 1L;
     private String commandName[];
     private Serializable commandObjectArgument;
+    private long id;
 
     public Request(String[] commandName,Serializable commandObjectArgument){
         this.commandName = commandName;
@@ -25,6 +26,17 @@ public class Request implements Serializable {
     public Object getCommandObjectArgument(){
         return commandObjectArgument;
     }
+
+    /**
+     * @return Number of the request on its connection, 0 if not numbered
+     */
+    public long getId(){
+        return id;
+    }
+
+    public void setId(long id){
+        this.id = id;
+    }
 //    public boolean isEmpty(){
 //        return commandName.isEmpty() && commandObjectArgument == null;
 //    }
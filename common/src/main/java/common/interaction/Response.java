@@ -6,20 +6,35 @@ public class Response implements Serializable{
     private static final long serialVersionUID = 2L;
     private final ResponseCode responseCode;
     private final String responseBody;
+    private final long requestId;
     public Response(ResponseCode responseCode){
-        this.responseCode = responseCode;
-        this.responseBody = "";
+        this(responseCode, "");
     }
    public Response(ResponseCode responseCode, String responseBody){
-       this.responseCode = responseCode;
-       this.responseBody = responseBody;
+       this(responseCode, responseBody, 0);
    }
+
+    /**
+     * @param requestId Id of the request, which is answered
+     */
+    public Response(ResponseCode responseCode, String responseBody, long requestId){
+        this.responseCode = responseCode;
+        this.responseBody = responseBody;
+        this.requestId = requestId;
+    }
    public ResponseCode getResponseCode(){
        return responseCode;
    }
    public String getResponseBody(){
        return responseBody;
    }
+
+    /**
+     * @return Id of the request, which is answered, 0 if not numbered
+     */
+    public long getRequestId(){
+        return requestId;
+    }
     @Override
     public String toString() {
         return "Response[" + responseCode + ", " + responseBody + "]";
@@ -3,5 +3,9 @@ package common.interaction;
 public enum ResponseCode {
     OK,
     ERROR,
-    SERVER_EXIT
+    SERVER_EXIT,
+    /**
+     * Part of a long answer, more responses to the same request follow
+     */
+    CHUNK
 }
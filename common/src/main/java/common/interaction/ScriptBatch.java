@@ -0,0 +1,28 @@
+package common.interaction;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Commands of a script, which are sent in one request and executed by the server one after another.
+ */
+public class ScriptBatch implements Serializable {
+    private static final long serialVersionUID = 7L;
+    private final List<Request> requests;
+
+    public ScriptBatch(List<Request> requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * @return Commands in script order
+     */
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptBatch[" + requests.size() + "]";
+    }
+}
@@ -0,0 +1,9 @@
+package common.interaction;
+
+/**
+ * Encoding of frame bodies. The server answers every request in the format it was sent in.
+ */
+public enum WireFormat {
+    SERIALIZED,
+    BINARY
+}
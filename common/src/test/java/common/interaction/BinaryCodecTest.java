@@ -0,0 +1,151 @@
+package common.interaction;
+
+import common.datas.*;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    private static Object roundTrip(Object message) throws IOException {
+        byte[] body = BinaryCodec.encode(message);
+        assertEquals(WireFormat.BINARY, FrameCodec.formatOf(body, body.length));
+        return BinaryCodec.decode(body, body.length);
+    }
+
+    private static void assertSameRequest(Request expected, Request actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertArrayEquals(expected.getCommandName(), actual.getCommandName());
+        Object argument = expected.getCommandObjectArgument();
+        if (argument instanceof StudyGroupRaw) {
+            assertSameStudyGroup((StudyGroupRaw) argument, (StudyGroupRaw) actual.getCommandObjectArgument());
+        } else if (argument instanceof ScriptBatch) {
+            List<Request> requests = ((ScriptBatch) argument).getRequests();
+            List<Request> actualRequests = ((ScriptBatch) actual.getCommandObjectArgument()).getRequests();
+            assertEquals(requests.size(), actualRequests.size());
+            for (int i = 0; i < requests.size(); i++) assertSameRequest(requests.get(i), actualRequests.get(i));
+        } else {
+            assertEquals(argument, actual.getCommandObjectArgument());
+        }
+    }
+
+    private static void assertSameStudyGroup(StudyGroupRaw expected, StudyGroupRaw actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCoordinates(), actual.getCoordinates());
+        assertEquals(expected.getStudentsCount(), actual.getStudentsCount());
+        assertEquals(expected.getTransferredStudents(), actual.getTransferredStudents());
+        assertEquals(expected.getFormOfEducation(), actual.getFormOfEducation());
+        assertEquals(expected.getSemesterEnum(), actual.getSemesterEnum());
+        assertEquals(expected.getGroupAdmin(), actual.getGroupAdmin());
+        assertEquals(expected.getGroupAdmin().getCountry(), actual.getGroupAdmin().getCountry());
+    }
+
+    private static Request request(long id, Serializable argument, String... words) {
+        Request request = new Request(words, argument);
+        request.setId(id);
+        return request;
+    }
+
+    @Test
+    public void requestsWithGeneratedGroups() throws IOException {
+        StudyGroupGenerator generator = new StudyGroupGenerator(11);
+        Random random = new Random(11);
+        for (int i = 0; i < 1000; i++) {
+            Request request = request(random.nextLong(), generator.nextRaw(), "insert", "key" + i);
+            assertSameRequest(request, (Request) roundTrip(request));
+        }
+    }
+
+    @Test
+    public void groupWithNullFields() throws IOException {
+        Person admin = new Person("Иван", null, null, new Location(null, null, -7, null));
+        StudyGroupRaw group = new StudyGroupRaw("Группа", new Coordinates(Integer.MIN_VALUE, Long.MAX_VALUE),
+                null, Long.MIN_VALUE, null, null, admin);
+        Request request = request(0, group, "update", "5");
+        assertSameRequest(request, (Request) roundTrip(request));
+    }
+
+    @Test
+    public void commandNames() throws IOException {
+        for (String name : new String[]{"help", "filter_by_enums", "unknown_command", "", "команда"}) {
+            Request request = request(42, null, name, "first", "", "третий");
+            assertSameRequest(request, (Request) roundTrip(request));
+        }
+    }
+
+    @Test
+    public void scriptBatch() throws IOException {
+        StudyGroupGenerator generator = new StudyGroupGenerator(5);
+        List<Request> requests = new ArrayList<>();
+        requests.add(request(0, null, "show"));
+        requests.add(request(0, generator.nextRaw(), "insert", "a"));
+        requests.add(request(0, null, "remove_key", "a"));
+        Request request = request(9, new ScriptBatch(requests), "execute_script", "script.txt");
+        assertSameRequest(request, (Request) roundTrip(request));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void nestedScriptBatchIsRejected() throws IOException {
+        Request inner = request(0, new ScriptBatch(Collections.singletonList(request(0, null, "show"))), "execute_script", "inner");
+        roundTrip(request(1, new ScriptBatch(Collections.singletonList(inner)), "execute_script", "outer"));
+    }
+
+    @Test
+    public void otherArgumentIsSerialized() throws IOException {
+        Request request = request(3, new ArrayList<>(Arrays.asList(1, 2, 3)), "help");
+        assertSameRequest(request, (Request) roundTrip(request));
+    }
+
+    @Test
+    public void responses() throws IOException {
+        StringBuilder longBody = new StringBuilder();
+        for (int i = 0; i < 100000; i++) longBody.append("строка ").append(i).append('\n');
+        for (String body : new String[]{null, "", "Команда выполнена", longBody.toString()}) {
+            for (ResponseCode code : ResponseCode.values()) {
+                Response response = (Response) roundTrip(new Response(code, body, -17));
+                assertEquals(code, response.getResponseCode());
+                assertEquals(body, response.getResponseBody());
+                assertEquals(-17, response.getRequestId());
+            }
+        }
+    }
+
+    @Test
+    public void varLongs() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        Random random = new Random(1);
+        for (int i = 0; i < values.length + 1000; i++) {
+            long value = i < values.length ? values[i] : random.nextLong() >> random.nextInt(64);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinaryCodec.writeVarLong(new DataOutputStream(bytes), value);
+            assertTrue(bytes.size() <= 10);
+            assertEquals(value, BinaryCodec.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+    }
+
+    @Test
+    public void truncatedBodiesFail() throws IOException {
+        byte[] body = BinaryCodec.encode(request(7, new StudyGroupGenerator(2).nextRaw(), "insert", "key"));
+        for (int length = 1; length < body.length; length++) {
+            try {
+                BinaryCodec.decode(body, length);
+                fail("decoded " + length + " of " + body.length + " bytes");
+            } catch (IOException expected) {
+                // every prefix ends inside a field
+            }
+        }
+    }
+
+    @Test
+    public void bothFormatsThroughFrameCodec() throws Exception {
+        Request request = request(5, new StudyGroupGenerator(3).nextRaw(), "insert", "k");
+        for (WireFormat format : WireFormat.values()) {
+            byte[] body = FrameCodec.encode(request, format);
+            assertEquals(format, FrameCodec.formatOf(body, body.length));
+            assertSameRequest(request, (Request) FrameCodec.decode(body, body.length));
+        }
+    }
+}
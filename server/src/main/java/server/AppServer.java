@@ -3,26 +3,51 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import common.exceptions.CannotReadFileException;
 import server.commands.*;
+import server.utilities.CheckpointScheduler;
 import server.utilities.CollectionManager;
 import server.utilities.CommandManager;
 import server.utilities.FileManager;
 import server.utilities.RequestHandler;
+import server.utilities.WriteAheadLog;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 public class AppServer {
     public static final int PORT = 4004;
     public static final int CONNECTION_TIMEOUT = 60 * 1000;
+    public static final String SERVER_MODE = System.getProperty("server.mode", "nio");
+    public static final int WORKER_THREADS = Integer.getInteger("server.workers", Runtime.getRuntime().availableProcessors());
+    public static final int FILTER_THREADS = Integer.getInteger("server.filter.threads", Runtime.getRuntime().availableProcessors());
+    public static final String CSV_READER = System.getProperty("server.csv.reader", "opencsv");
+    public static final String STORAGE_FORMAT = System.getProperty("server.storage", "csv");
+    public static final boolean SNAPSHOT_FALLBACK = Boolean.parseBoolean(System.getProperty("server.snapshot.fallback", "false"));
+    public static final long CHECKPOINT_INTERVAL = Long.getLong("server.checkpoint.interval", 300) * 1000;
+    public static final long CHECKPOINT_DIRTY_ENTRIES = Long.getLong("server.checkpoint.dirty", 10000);
+    public static final String COLLECTION_TYPE = System.getProperty("server.collection", "tree");
+    public static final boolean WRITE_AHEAD_LOG = Boolean.parseBoolean(System.getProperty("server.wal", "true"));
     public final Logger LOG  = LoggerFactory.getLogger(AppServer.class);
 
     public static void main(String[] args) throws IOException, CannotReadFileException {
 
         if(args.length == 1){
             final String PATH_FILE = args[0];
-            FileManager fileManager = new FileManager(PATH_FILE);
+            FileManager fileManager = new FileManager(PATH_FILE, CSV_READER.equals("mapped"), STORAGE_FORMAT.equals("binary"), SNAPSHOT_FALLBACK);
             CommandManager commandManager = new CommandManager();
-            CollectionManager collectionManager = new CollectionManager(commandManager,fileManager);
+            WriteAheadLog writeAheadLog = WRITE_AHEAD_LOG ? new WriteAheadLog(PATH_FILE) : null;
+            CollectionManager collectionManager = new CollectionManager(commandManager,fileManager,writeAheadLog,COLLECTION_TYPE);
+            collectionManager.setFilterPool(new ForkJoinPool(FILTER_THREADS, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("server-filter-" + thread.getPoolIndex());
+                return thread;
+            }, null, false));
+            CheckpointScheduler checkpointScheduler = new CheckpointScheduler(collectionManager, CHECKPOINT_INTERVAL, CHECKPOINT_DIRTY_ENTRIES);
+            collectionManager.setCheckpointScheduler(checkpointScheduler);
+            checkpointScheduler.start();
             commandManager.addCommand(new ShowCommand(collectionManager));
+            commandManager.addCommand(new ShowPageCommand(collectionManager));
+            commandManager.addCommand(new ShowAfterCommand(collectionManager));
             commandManager.addCommand(new InsertCommand(collectionManager));
             commandManager.addCommand(new HelpCommand(collectionManager));
             commandManager.addCommand(new HistoryCommand(collectionManager));
@@ -30,16 +55,27 @@ public class AppServer {
             commandManager.addCommand(new FilterContainsNameCommand(collectionManager));
             commandManager.addCommand(new FilterGreaterThanFormOfEducationCommand(collectionManager));
             commandManager.addCommand(new FilterLessThanTransferredStudentsCommand(collectionManager));
+            commandManager.addCommand(new FilterGreaterThanTransferredStudentsCommand(collectionManager));
+            commandManager.addCommand(new FilterBetweenTransferredStudentsCommand(collectionManager));
+            commandManager.addCommand(new FilterByEnumsCommand(collectionManager));
             commandManager.addCommand(new InfoCommand(collectionManager));
             commandManager.addCommand(new RemoveCommand(collectionManager));
+            commandManager.addCommand(new GetByIdCommand(collectionManager));
+            commandManager.addCommand(new RemoveByIdCommand(collectionManager));
             commandManager.addCommand(new UpdateCommand(collectionManager));
             commandManager.addCommand(new RemoveLowerCommand(collectionManager));
             commandManager.addCommand(new ReplaceIfGreaterCommand(collectionManager));
             commandManager.addCommand(new ExecuteScriptCommand(collectionManager));
             commandManager.addCommand(new ExitCommand(collectionManager));
-            RequestHandler requestHandler = new RequestHandler(commandManager);
-            Server server = new Server(PORT,CONNECTION_TIMEOUT,requestHandler,collectionManager);
-            server.run();
+            RequestHandler requestHandler = new RequestHandler(commandManager,collectionManager);
+            if(SERVER_MODE.equals("blocking")){
+                Server server = new Server(PORT,CONNECTION_TIMEOUT,requestHandler,collectionManager);
+                server.run();
+            }
+            else{
+                NioServer server = new NioServer(PORT,WORKER_THREADS,requestHandler,collectionManager);
+                server.run();
+            }
 
         }
         else if(args.length == 0) System.out.println("Должно вводыть имя файла!");
@@ -0,0 +1,319 @@
+package server;
+
+import common.exceptions.OpeningServerSocketException;
+import common.interaction.FrameCodec;
+import common.interaction.Request;
+import common.interaction.Response;
+import common.interaction.ResponseCode;
+import common.interaction.WireFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.utilities.CollectionManager;
+import server.utilities.RequestHandler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking server. One selector thread accepts clients and reads/writes frames,
+ * commands are executed by the worker pool through the same RequestHandler.
+ * Requests of one client are executed one after another and answered in order.
+ * A long answer is sent in chunks; the worker waits while too much of it is not written yet,
+ * so a slow client does not make the server keep the whole answer in memory.
+ * A client, which reads nothing for MAX_WRITE_WAIT_MILLIS, is disconnected.
+ */
+public class NioServer {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final long WRITE_WAIT_MILLIS = 100;
+    private static final long MAX_WRITE_WAIT_MILLIS = 30 * 1000;
+    private final int port;
+    private final RequestHandler requestHandler;
+    private final CollectionManager collectionManager;
+    private final ExecutorService workers;
+    private final Queue<ClientConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverSocketChannel;
+    private volatile boolean running;
+    public final Logger LOG
+            = LoggerFactory.getLogger(NioServer.class);
+
+    public NioServer(int port, int workerThreads, RequestHandler requestHandler, CollectionManager collectionManager){
+        this.port = port;
+        this.requestHandler = requestHandler;
+        this.collectionManager = collectionManager;
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "server-worker-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void run() throws IOException {
+        try{
+            openServerSocket();
+            new ServerConsole(collectionManager, this::stop).start();
+            running = true;
+            while(running){
+                selector.select();
+                enableWriting();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while(selectedKeys.hasNext()){
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if(!key.isValid()) continue;
+                    try{
+                        if(key.isAcceptable()) connectToClient();
+                        else{
+                            if(key.isReadable()) readFromClient(key);
+                            if(key.isValid() && key.isWritable()) writeToClient(key);
+                        }
+                    } catch (IOException err){
+                        LOG.error("Непредвиденный разрыв соединения с клиентом!");
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch(OpeningServerSocketException err){
+            LOG.error("Сервер не может быть запущен!");
+        }
+    }
+
+    public void openServerSocket() throws IOException {
+        try{
+            LOG.info("Запуск сервера...");
+            selector = Selector.open();
+            serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.bind(new InetSocketAddress(port));
+            serverSocketChannel.configureBlocking(false);
+            serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+            LOG.info("Сервер успешно запущен.");
+            LOG.info("Прослушивание порта '" + port + "'...");
+        } catch(IllegalArgumentException err){
+            LOG.error("Порт '" + port + "' находится за пределами возможных значений!");
+            throw new OpeningServerSocketException();
+        }
+        catch (IOException err){
+            LOG.error("Произошла ошибка при попытке использовать порт '" + port + "'!");
+            throw new OpeningServerSocketException();
+        }
+    }
+
+    private void connectToClient() throws IOException {
+        SocketChannel clientChannel = serverSocketChannel.accept();
+        if(clientChannel == null) return;
+        clientChannel.configureBlocking(false);
+        SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ);
+        key.attach(new ClientConnection(clientChannel, key));
+        LOG.info("Соединение с клиентом успешно установлено.");
+    }
+
+    private void readFromClient(SelectionKey key) throws IOException {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        if(connection.channel.read(connection.readBuffer) == -1){
+            LOG.info("Клиент успешно отключен от сервера!");
+            closeConnection(key);
+            return;
+        }
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        int required = 0;
+        while(buffer.remaining() >= FrameCodec.HEADER_SIZE){
+            int length = buffer.getInt(buffer.position());
+            FrameCodec.checkLength(length);
+            if(buffer.remaining() < FrameCodec.HEADER_SIZE + length){
+                required = FrameCodec.HEADER_SIZE + length;
+                break;
+            }
+            buffer.getInt();
+            byte[] body = new byte[length];
+            buffer.get(body);
+            connection.inbox.add(body);
+        }
+        buffer.compact();
+        if(required > buffer.capacity()){
+            ByteBuffer grown = ByteBuffer.allocate(required);
+            buffer.flip();
+            grown.put(buffer);
+            connection.readBuffer = grown;
+        }
+        schedule(connection);
+    }
+
+    private void writeToClient(SelectionKey key) throws IOException {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        ByteBuffer frame;
+        while((frame = connection.outbox.peek()) != null){
+            connection.channel.write(frame);
+            if(frame.hasRemaining()) return;
+            connection.outbox.poll();
+            connection.written(frame.limit());
+            if(frame == connection.closingFrame){
+                closeConnection(key);
+                return;
+            }
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Turn on OP_WRITE for connections, which got responses from workers
+     */
+    private void enableWriting(){
+        ClientConnection connection;
+        while((connection = pendingWrites.poll()) != null){
+            if(connection.key.isValid())
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void schedule(ClientConnection connection){
+        if(!connection.inbox.isEmpty() && connection.processing.compareAndSet(false, true))
+            workers.execute(() -> process(connection));
+    }
+
+    private void process(ClientConnection connection){
+        try{
+            byte[] body;
+            while((body = connection.inbox.poll()) != null){
+                Request userRequest;
+                try{
+                    userRequest = (Request) FrameCodec.decode(body, body.length);
+                } catch (ClassNotFoundException | IOException | ClassCastException err){
+                    // the request id is unknown, so the answers would go out of step with the requests
+                    LOG.error("Произошла ошибка при чтении полученных данных!");
+                    connection.inbox.clear();
+                    closeConnection(connection.key);
+                    return;
+                }
+                WireFormat format = FrameCodec.formatOf(body, body.length);
+                Response responseToUser = requestHandler.handle(userRequest, chunk -> sendChunk(connection, FrameCodec.toFrame(chunk, format)));
+                LOG.info("Запрос '" + Arrays.toString(userRequest.getCommandName()) + "'обработан.");
+                try{
+                    ByteBuffer frame = FrameCodec.toFrame(responseToUser, format);
+                    if(responseToUser.getResponseCode() == ResponseCode.SERVER_EXIT) connection.closingFrame = frame;
+                    send(connection, frame);
+                } catch (IOException err){
+                    LOG.error("Произошла ошибка при отправке данных на клиент!");
+                }
+            }
+        } finally {
+            connection.processing.set(false);
+            schedule(connection);
+        }
+    }
+
+    private void send(ClientConnection connection, ByteBuffer frame){
+        connection.queued(frame.remaining());
+        connection.outbox.add(frame);
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Queue part of an answer, waiting first until the client has read enough of the previous parts
+     * @throws IOException if the connection is closed meanwhile, or the client does not read for too long
+     */
+    private void sendChunk(ClientConnection connection, ByteBuffer frame) throws IOException {
+        try{
+            if(!connection.awaitQueuedBelow(MAX_QUEUED_BYTES, MAX_WRITE_WAIT_MILLIS)){
+                LOG.error("Клиент не читает ответ, соединение закрыто!");
+                closeConnection(connection.key);
+                throw new SocketTimeoutException();
+            }
+        } catch (InterruptedException err){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        send(connection, frame);
+    }
+
+    /**
+     * Close the client channel. A worker may call it too: the socket is released
+     * when the selector wakes up and deregisters the key.
+     */
+    private void closeConnection(SelectionKey key){
+        key.cancel();
+        try{
+            key.channel().close();
+        } catch (IOException err){
+            LOG.error("Произошла ошибка при попытке завершить соединение с клиентом!");
+        }
+        selector.wakeup();
+    }
+
+    public void stop(){
+        try{
+            LOG.info("Завершение работы сервера...");
+            running = false;
+            workers.shutdown();
+            if(selector != null) selector.wakeup();
+            if(serverSocketChannel != null) serverSocketChannel.close();
+            LOG.info("Работа сервера успешно завершена.");
+            System.exit(0);
+        } catch (IOException err){
+            LOG.error("Произошла ошибка при завершении работы сервера!");
+        }
+    }
+
+    /**
+     * State of one client channel
+     */
+    private static final class ClientConnection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final Queue<byte[]> inbox = new ConcurrentLinkedQueue<>();
+        final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean processing = new AtomicBoolean();
+        /**
+         * Frame, after which the connection is closed
+         */
+        volatile ByteBuffer closingFrame;
+        private long queuedBytes;
+
+        ClientConnection(SocketChannel channel, SelectionKey key){
+            this.channel = channel;
+            this.key = key;
+        }
+
+        synchronized void queued(long bytes){
+            queuedBytes += bytes;
+        }
+
+        synchronized void written(long bytes){
+            queuedBytes -= bytes;
+            notifyAll();
+        }
+
+        /**
+         * @return false, if the queue did not get below the limit in timeoutMillis
+         */
+        synchronized boolean awaitQueuedBelow(long limit, long timeoutMillis) throws InterruptedException, IOException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while(queuedBytes >= limit){
+                if(!key.isValid()) throw new ClosedChannelException();
+                if(System.currentTimeMillis() >= deadline) return false;
+                wait(WRITE_WAIT_MILLIS);
+            }
+            return true;
+        }
+    }
+}
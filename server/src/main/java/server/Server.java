@@ -1,15 +1,10 @@
 package server;
 
-import java.io.IOException;
-import java.io.InvalidClassException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.Arrays;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
 
 import common.exceptions.ClosingSocketException;
 import common.exceptions.ConnectionErrorException;
@@ -27,7 +22,6 @@ public class Server {
     private ServerSocket serverSocket;
     private boolean clientSocketStatus = false;
     private boolean serverExitStatus = false;
-    private Scanner scanner = new Scanner(System.in);
     CollectionManager collectionManager;
     String command ="";
     public final Logger LOG
@@ -43,28 +37,13 @@ public class Server {
     public void run() throws IOException {
         try{
             openServerSocket();
-            Runnable userInput = () ->{
-                while(true){
-                    try{
-                        String[] userCommand = scanner.nextLine().trim().split(" ");
-
-                        if(userCommand.length == 1 && userCommand[0].equals("exit_server")){
-                            try {
-                                    stop();
-                                    break;
-                            } catch (IOException e) { e.printStackTrace(); }
-                        }
-                        else if(userCommand[0].equals("save"))  collectionManager.save();
-                        else LOG.error("Нет таких команд!\nДля завершения сервера - exit_server\nДля сохранение коллекцию в файл - save");
-                    }catch (NoSuchElementException err){
-                        LOG.error("Непредвиденная ошибка!");
-                        System.exit(0);
-                    }
-
+            new ServerConsole(collectionManager, () -> {
+                try {
+                    stop();
+                } catch (IOException err){
+                    LOG.error("Произошла ошибка при завершении работы сервера!");
                 }
-            };
-            Thread thread = new Thread(userInput);
-            thread.start();
+            }).start();
             boolean processingStatus = true;
             while(processingStatus){
                 try(Socket clientSocket = connectToClient();){
@@ -123,15 +102,16 @@ public class Server {
     public boolean processClientRequest(Socket clientSocket) throws IOException {
         Request userRequest = null;
         Response responseToUser = null;
-        try (ObjectInputStream clientReader = new ObjectInputStream(clientSocket.getInputStream());
-             ObjectOutputStream clientWriter = new ObjectOutputStream(clientSocket.getOutputStream())){
+        try (DataInputStream clientReader = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+             DataOutputStream clientWriter = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()))){
             do{
 
-                userRequest = (Request) clientReader.readObject();
-                responseToUser = requestHandler.handle(userRequest);
+                byte[] body = FrameCodec.readBody(clientReader);
+                userRequest = (Request) FrameCodec.decode(body, body.length);
+                WireFormat format = FrameCodec.formatOf(body, body.length);
+                responseToUser = requestHandler.handle(userRequest, chunk -> FrameCodec.writeFrame(clientWriter, chunk, format));
                 LOG.info("Запрос '" + Arrays.toString(userRequest.getCommandName()) + "'обработан.");
-                clientWriter.writeObject(responseToUser);
-                clientWriter.flush();
+                FrameCodec.writeFrame(clientWriter, responseToUser, format);
 
             }while(responseToUser.getResponseCode() != ResponseCode.SERVER_EXIT);
             return false;
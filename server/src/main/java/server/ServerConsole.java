@@ -0,0 +1,57 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.utilities.CollectionManager;
+
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Server console, reads administrator commands from standard input.
+ */
+public class ServerConsole implements Runnable {
+    private final Scanner scanner = new Scanner(System.in);
+    private final CollectionManager collectionManager;
+    private final Runnable stopAction;
+    public final Logger LOG
+            = LoggerFactory.getLogger(ServerConsole.class);
+
+    /**
+     * Constructor
+     * @param collectionManager Collection manager
+     * @param stopAction Action for exit_server command
+     */
+    public ServerConsole(CollectionManager collectionManager, Runnable stopAction) {
+        this.collectionManager = collectionManager;
+        this.stopAction = stopAction;
+    }
+
+    @Override
+    public void run() {
+        while(true){
+            try{
+                String[] userCommand = scanner.nextLine().trim().split(" ");
+
+                if(userCommand.length == 1 && userCommand[0].equals("exit_server")){
+                    stopAction.run();
+                    break;
+                }
+                else if(userCommand[0].equals("save"))  collectionManager.save();
+                else if(userCommand[0].equals("export_csv"))  collectionManager.exportCsv();
+                else LOG.error("Нет таких команд!\nДля завершения сервера - exit_server\nДля сохранение коллекцию в файл - save\nДля выгрузки коллекции в CSV файл - export_csv");
+            }catch (NoSuchElementException err){
+                LOG.error("Непредвиденная ошибка!");
+                System.exit(0);
+            }
+        }
+    }
+
+    /**
+     * Start console in its own thread
+     */
+    public void start() {
+        Thread thread = new Thread(this, "server-console");
+        thread.start();
+    }
+}
@@ -1,6 +1,7 @@
 package server.commands;
 
 import common.interaction.StudyGroupRaw;
+import server.utilities.ResponseOutputer;
 
 import java.io.IOException;
 
@@ -26,8 +27,8 @@ public abstract class AbstractCommand implements ICommand {
         return name;
     }
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
     }
-    public void execute(String[] arg, StudyGroupRaw studyGroupRaw){
+    public void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer){
     }
 }
@@ -17,13 +17,13 @@ public class ExecuteScriptCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.executeScript(arg[1]);
+            collectionManager.executeScript(arg[1],responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -19,13 +19,13 @@ public class ExitCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
         try {
             if (!(arg.length == 1)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.exit();
+            collectionManager.exit(responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
\ No newline at end of file
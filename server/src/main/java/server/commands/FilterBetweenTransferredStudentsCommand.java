@@ -0,0 +1,30 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+import java.io.IOException;
+/**
+ * Concrete command, Number of transferred students between given bounds
+ */
+public class FilterBetweenTransferredStudentsCommand extends AbstractCommand{
+    private final CollectionManager collectionManager;
+    public FilterBetweenTransferredStudentsCommand(CollectionManager collectionManager){
+        super("filter_between_transferred_students","filter_between_transferred_students from to : вывести элементы, значение поля transferredStudents которых от from до to включительно");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
+        try{
+            if(!(arg.length == 3)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.filter_between_transferred_students(arg[1],arg[2],responseOutputer);
+        }
+        catch (IncorrectCommandInputException err){
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
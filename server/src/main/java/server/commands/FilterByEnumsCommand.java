@@ -0,0 +1,30 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+import java.io.IOException;
+/**
+ * Concrete command, Combination of conditions on formOfEducation, semester and country
+ */
+public class FilterByEnumsCommand extends AbstractCommand{
+    private final CollectionManager collectionManager;
+    public FilterByEnumsCommand(CollectionManager collectionManager){
+        super("filter_by_enums","filter_by_enums query : вывести элементы по условиям на formOfEducation, semester, country; условия через ',' - И, варианты через '+' - ИЛИ, например semester=THIRD|EIGHT,country!=CHINA+formOfEducation>DISTANCE_EDUCATION");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
+        try{
+            if(!(arg.length == 2)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.filter_by_enums(arg[1],responseOutputer);
+        }
+        catch (IncorrectCommandInputException err){
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
@@ -19,13 +19,13 @@ public class FilterContainsNameCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.filter_contains_name(arg[1]);
+            collectionManager.filter_contains_name(arg[1],responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -19,13 +19,13 @@ public class FilterGreaterThanFormOfEducationCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.filter_greater_than_form_of_education(arg[1]);
+            collectionManager.filter_greater_than_form_of_education(arg[1],responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -0,0 +1,30 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+import java.io.IOException;
+/**
+ * Concrete command, Number of transferred students greater than given
+ */
+public class FilterGreaterThanTransferredStudentsCommand extends AbstractCommand{
+    private final CollectionManager collectionManager;
+    public FilterGreaterThanTransferredStudentsCommand(CollectionManager collectionManager){
+        super("filter_greater_than_transferred_students","filter_greater_than_transferred_students transferredStudents : вывести элементы, значение поля transferredStudents которых больше заданного");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
+        try{
+            if(!(arg.length == 2)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.filter_greater_than_transferred_students(arg[1],responseOutputer);
+        }
+        catch (IncorrectCommandInputException err){
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
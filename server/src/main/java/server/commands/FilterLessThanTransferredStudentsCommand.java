@@ -17,14 +17,14 @@ public class FilterLessThanTransferredStudentsCommand extends AbstractCommand{
     }
 
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
         try{
             if(!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.filter_less_than_transferred_students(arg[1]);
+            collectionManager.filter_less_than_transferred_students(arg[1],responseOutputer);
         }
         catch (IncorrectCommandInputException err){
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
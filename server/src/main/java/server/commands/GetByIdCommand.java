@@ -0,0 +1,29 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+/**
+ * Concrete command, Print element by id
+ */
+public class GetByIdCommand extends AbstractCommand {
+    private final CollectionManager collectionManager;
+
+    public GetByIdCommand(CollectionManager collectionManager) {
+        super("get_by_id", "get_by_id id : вывести элемент коллекции, id которого равен заданному");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
+        try {
+            if (!(arg.length == 2)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.get_by_id(arg[1],responseOutputer);
+        } catch (IncorrectCommandInputException err) {
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
@@ -17,13 +17,13 @@ public class HelpCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 1)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.help();
+            collectionManager.help(responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
 
     }
@@ -19,13 +19,13 @@ public class HistoryCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) throws IOException {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException {
         try {
             if (!(arg.length == 1)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.history();
+            collectionManager.history(responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -1,6 +1,7 @@
 package server.commands;
 
 import common.interaction.StudyGroupRaw;
+import server.utilities.ResponseOutputer;
 
 import java.io.IOException;
 
@@ -12,6 +13,6 @@ public interface ICommand {
 
     String getName();
 
-    void execute(String[] arg) throws IOException;
-    void execute(String[] arg, StudyGroupRaw studyGroupRaw);
+    void execute(String[] arg, ResponseOutputer responseOutputer) throws IOException;
+    void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer);
 }
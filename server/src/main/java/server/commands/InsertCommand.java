@@ -21,13 +21,13 @@ public class InsertCommand extends AbstractCommand {
 
     }
 
-    public void execute(String[] arg, StudyGroupRaw studyGroupRaw) {
+    public void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.insert(arg[1],studyGroupRaw);
+            collectionManager.insert(arg[1],studyGroupRaw,responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         } catch (IncorrectInputScriptException err) {
             throw new IncorrectInputScriptException();
         }
@@ -0,0 +1,29 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+/**
+ * Concrete command, Remove by id
+ */
+public class RemoveByIdCommand extends AbstractCommand {
+    private final CollectionManager collectionManager;
+
+    public RemoveByIdCommand(CollectionManager collectionManager) {
+        super("remove_by_id", "remove_by_id id : удалить элемент из коллекции по его id");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
+        try {
+            if (!(arg.length == 2)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.remove_by_id(arg[1],responseOutputer);
+        } catch (IncorrectCommandInputException err) {
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
@@ -17,13 +17,13 @@ public class RemoveCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg) {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.remove(arg[1]);
+            collectionManager.remove(arg[1],responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -18,13 +18,13 @@ public class RemoveLowerCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg, StudyGroupRaw studyGroupRaw) {
+    public void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 1)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.removeLower(studyGroupRaw);
+            collectionManager.removeLower(studyGroupRaw,responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
\ No newline at end of file
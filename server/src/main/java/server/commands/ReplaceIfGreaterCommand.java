@@ -18,13 +18,13 @@ public class ReplaceIfGreaterCommand extends AbstractCommand {
     }
 
     @Override
-    public void execute(String[] arg, StudyGroupRaw studyGroupRaw) {
+    public void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.replace_if_greater(arg[1],studyGroupRaw);
+            collectionManager.replace_if_greater(arg[1],studyGroupRaw,responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
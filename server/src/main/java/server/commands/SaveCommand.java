@@ -18,13 +18,13 @@ public class SaveCommand extends AbstractCommand {
 
 
     @Override
-    public void execute(String[] arg) {
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 1)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
             collectionManager.save();
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
@@ -0,0 +1,29 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+/**
+ * Concrete command, Show page of collection after the given key
+ */
+public class ShowAfterCommand extends AbstractCommand {
+    private final CollectionManager collectionManager;
+
+    public ShowAfterCommand(CollectionManager collectionManager) {
+        super("show_after", "show_after key limit : Вывести limit элементов коллекции с ключами после key");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
+        try {
+            if (!(arg.length == 3)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.show_after(arg[1], arg[2], responseOutputer);
+        } catch (IncorrectCommandInputException err) {
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
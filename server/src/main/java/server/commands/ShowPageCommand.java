@@ -0,0 +1,29 @@
+package server.commands;
+
+import common.exceptions.IncorrectCommandInputException;
+import server.utilities.CollectionManager;
+import server.utilities.CommandManager;
+import server.utilities.ResponseOutputer;
+
+/**
+ * Concrete command, Show one page of collection
+ */
+public class ShowPageCommand extends AbstractCommand {
+    private final CollectionManager collectionManager;
+
+    public ShowPageCommand(CollectionManager collectionManager) {
+        super("show_page", "show_page offset limit : Вывести limit элементов коллекции, пропустив первые offset");
+        this.collectionManager = collectionManager;
+    }
+
+    @Override
+    public void execute(String[] arg, ResponseOutputer responseOutputer) {
+        try {
+            if (!(arg.length == 3)) throw new IncorrectCommandInputException();
+            CommandManager.addToHistory(getName());
+            collectionManager.show_page(arg[1], arg[2], responseOutputer);
+        } catch (IncorrectCommandInputException err) {
+            responseOutputer.append("Использование: " + getDescription());
+        }
+    }
+}
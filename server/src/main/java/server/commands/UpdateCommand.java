@@ -18,13 +18,13 @@ public class UpdateCommand extends AbstractCommand {
         this.collectionManager = collectionManager;
     }
 
-    public void execute(String[] arg, StudyGroupRaw studyGroupRaw) {
+    public void execute(String[] arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer) {
         try {
             if (!(arg.length == 2)) throw new IncorrectCommandInputException();
             CommandManager.addToHistory(getName());
-            collectionManager.update(arg[1],studyGroupRaw);
+            collectionManager.update(arg[1],studyGroupRaw,responseOutputer);
         } catch (IncorrectCommandInputException err) {
-            ResponseOutputer.append("Использование: " + getDescription());
+            responseOutputer.append("Использование: " + getDescription());
         }
     }
 }
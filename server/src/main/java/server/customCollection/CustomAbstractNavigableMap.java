@@ -0,0 +1,666 @@
+package server.customCollection;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Skeleton of a NavigableMap. A subclass provides lookups, updates, the six searches
+ * (first, last, lower, floor, ceiling, higher) and an ascending iterator from a key;
+ * key sets, the descending map and sub maps are provided here as views, which check
+ * bounds and forward everything to the subclass.
+ * <p>
+ * Entries returned by searches are snapshots and do not support setValue.
+ * Null keys are not allowed.
+ */
+public abstract class CustomAbstractNavigableMap<K,V> extends CustomAbstractMap<K,V> implements NavigableMap<K,V> {
+    private static final int LT = 0;
+    private static final int LE = 1;
+    private static final int GE = 2;
+    private static final int GT = 3;
+    private transient Set<Map.Entry<K,V>> entrySet;
+    private transient NavigableSet<K> keySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns an iterator over entries in ascending key order, starting at the first entry,
+     * if from is null, otherwise at the first entry after (or at, if inclusive) from.
+     */
+    protected abstract Iterator<Map.Entry<K,V>> entryIterator(K from, boolean inclusive);
+
+    /**
+     * Compares two keys with the comparator of the map or by their natural ordering.
+     */
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object k1, Object k2) {
+        Comparator<? super K> comparator = comparator();
+        return comparator == null ? ((Comparable<Object>) k1).compareTo(k2) : comparator.compare((K) k1, (K) k2);
+    }
+
+    public K firstKey() {
+        return key(firstEntry());
+    }
+
+    public K lastKey() {
+        return key(lastEntry());
+    }
+
+    public K lowerKey(K key) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    public K floorKey(K key) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    public K higherKey(K key) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        return poll(this, this::firstEntry);
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        return poll(this, this::lastEntry);
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        return es != null ? es : (entrySet = new EntrySetView<>(this, () -> entryIterator(null, false)));
+    }
+
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        NavigableSet<K> ks = keySet;
+        return ks != null ? ks : (keySet = new KeySetView<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    public NavigableMap<K,V> descendingMap() {
+        NavigableMap<K,V> dm = descendingMap;
+        return dm != null ? dm : (descendingMap = new SubMapView<>(this, null, false, null, false, true));
+    }
+
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        if (compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("fromKey > toKey");
+        return new SubMapView<>(this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMapView<>(this, null, false, toKey, inclusive, false);
+    }
+
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMapView<>(this, fromKey, inclusive, null, false, false);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    static <K> K key(Map.Entry<K,?> e) {
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.getKey();
+    }
+
+    static <K> K keyOrNull(Map.Entry<K,?> e) {
+        return e == null ? null : e.getKey();
+    }
+
+    /**
+     * Removes the found entry, searching again if it was changed or removed meanwhile
+     */
+    static <K,V> Map.Entry<K,V> poll(Map<K,V> map, Supplier<Map.Entry<K,V>> search) {
+        for (;;) {
+            Map.Entry<K,V> e = search.get();
+            if (e == null || map.remove(e.getKey(), e.getValue()))
+                return e;
+        }
+    }
+
+    /**
+     * Entry set of a map or sub map, removal goes through the map.
+     */
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        private final Map<K,V> m;
+        private final Supplier<Iterator<Map.Entry<K,V>>> iterators;
+
+        EntrySetView(Map<K,V> m, Supplier<Iterator<Map.Entry<K,V>>> iterators) {
+            this.m = m;
+            this.iterators = iterators;
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return iterators.get();
+        }
+
+        /**
+         * Entries come in key order; the size is not reported, it takes a walk for a sub map.
+         */
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.DISTINCT | Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        public int size() {
+            return m.size();
+        }
+
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            V v = m.get(e.getKey());
+            return v != null && v.equals(e.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return m.remove(e.getKey(), e.getValue());
+        }
+
+        public void clear() {
+            m.clear();
+        }
+    }
+
+    /**
+     * Navigable key set of a map or sub map.
+     */
+    static final class KeySetView<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E,?> m;
+
+        KeySetView(NavigableMap<E,?> m) {
+            this.m = m;
+        }
+
+        public Iterator<E> iterator() {
+            Iterator<? extends Map.Entry<E,?>> entries = m.entrySet().iterator();
+            return new Iterator<E>() {
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                public E next() {
+                    return entries.next().getKey();
+                }
+
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        public int size() {
+            return m.size();
+        }
+
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            return m.containsKey(o);
+        }
+
+        public boolean remove(Object o) {
+            return m.remove(o) != null;
+        }
+
+        public void clear() {
+            m.clear();
+        }
+
+        public E lower(E e) {
+            return m.lowerKey(e);
+        }
+
+        public E floor(E e) {
+            return m.floorKey(e);
+        }
+
+        public E ceiling(E e) {
+            return m.ceilingKey(e);
+        }
+
+        public E higher(E e) {
+            return m.higherKey(e);
+        }
+
+        public E first() {
+            return m.firstKey();
+        }
+
+        public E last() {
+            return m.lastKey();
+        }
+
+        public E pollFirst() {
+            return keyOrNull(m.pollFirstEntry());
+        }
+
+        public E pollLast() {
+            return keyOrNull(m.pollLastEntry());
+        }
+
+        public Comparator<? super E> comparator() {
+            return m.comparator();
+        }
+
+        public NavigableSet<E> descendingSet() {
+            return new KeySetView<>(m.descendingMap());
+        }
+
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySetView<>(m.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySetView<>(m.headMap(toElement, inclusive));
+        }
+
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySetView<>(m.tailMap(fromElement, inclusive));
+        }
+
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * Range of the map between lo and hi (null - unbounded), in ascending or descending order.
+     * Bounds are always kept in ascending sense; descending views flip the searches.
+     */
+    static final class SubMapView<K,V> extends AbstractMap<K,V> implements NavigableMap<K,V> {
+        private final CustomAbstractNavigableMap<K,V> m;
+        private final K lo;
+        private final boolean loInclusive;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        SubMapView(CustomAbstractNavigableMap<K,V> m, K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean descending) {
+            this.m = m;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(Object key) {
+            if (lo == null)
+                return false;
+            int c = m.compare(key, lo);
+            return c < 0 || (c == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(Object key) {
+            if (hi == null)
+                return false;
+            int c = m.compare(key, hi);
+            return c > 0 || (c == 0 && !hiInclusive);
+        }
+
+        private boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        private void checkRange(Object key) {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        private Map.Entry<K,V> lowest() {
+            Map.Entry<K,V> e = lo == null ? m.firstEntry() : loInclusive ? m.ceilingEntry(lo) : m.higherEntry(lo);
+            return e == null || tooHigh(e.getKey()) ? null : e;
+        }
+
+        private Map.Entry<K,V> highest() {
+            Map.Entry<K,V> e = hi == null ? m.lastEntry() : hiInclusive ? m.floorEntry(hi) : m.lowerEntry(hi);
+            return e == null || tooLow(e.getKey()) ? null : e;
+        }
+
+        /**
+         * Search in ascending sense, relation is one of LT, LE, GE, GT
+         */
+        private Map.Entry<K,V> near(K key, int relation) {
+            if (descending)
+                relation = GT - relation;
+            if (tooLow(key))
+                return relation >= GE ? lowest() : null;
+            if (tooHigh(key))
+                return relation <= LE ? highest() : null;
+            Map.Entry<K,V> e;
+            switch (relation) {
+                case LT: e = m.lowerEntry(key); break;
+                case LE: e = m.floorEntry(key); break;
+                case GE: e = m.ceilingEntry(key); break;
+                default: e = m.higherEntry(key); break;
+            }
+            return e == null || !inRange(e.getKey()) ? null : e;
+        }
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> comparator = m.comparator();
+            if (!descending)
+                return comparator;
+            return comparator == null ? Collections.reverseOrder() : Collections.reverseOrder(comparator);
+        }
+
+        public boolean containsKey(Object key) {
+            if (key == null)
+                throw new NullPointerException();
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public V get(Object key) {
+            if (key == null)
+                throw new NullPointerException();
+            return inRange(key) ? m.get(key) : null;
+        }
+
+        public V put(K key, V value) {
+            checkRange(key);
+            return m.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return key != null && inRange(key) ? m.remove(key) : null;
+        }
+
+        public boolean remove(Object key, Object value) {
+            return key != null && inRange(key) && m.remove(key, value);
+        }
+
+        public int size() {
+            int size = 0;
+            for (Iterator<Map.Entry<K,V>> it = entryIterator(); it.hasNext(); it.next())
+                size++;
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        public void clear() {
+            for (Iterator<Map.Entry<K,V>> it = entryIterator(); it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return descending ? highest() : lowest();
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return descending ? lowest() : highest();
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return near(key, LT);
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return near(key, LE);
+        }
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return near(key, GE);
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return near(key, GT);
+        }
+
+        public K firstKey() {
+            return key(firstEntry());
+        }
+
+        public K lastKey() {
+            return key(lastEntry());
+        }
+
+        public K lowerKey(K key) {
+            return keyOrNull(lowerEntry(key));
+        }
+
+        public K floorKey(K key) {
+            return keyOrNull(floorEntry(key));
+        }
+
+        public K ceilingKey(K key) {
+            return keyOrNull(ceilingEntry(key));
+        }
+
+        public K higherKey(K key) {
+            return keyOrNull(higherEntry(key));
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return poll(this, this::firstEntry);
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return poll(this, this::lastEntry);
+        }
+
+        private Iterator<Map.Entry<K,V>> entryIterator() {
+            return descending ? new DescendingIterator() : new AscendingIterator();
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new EntrySetView<>(this, this::entryIterator);
+        }
+
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySetView<>(this);
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            return new SubMapView<>(m, lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        /**
+         * Arguments are in the order of this view, they are turned to ascending bounds here
+         */
+        private NavigableMap<K,V> newSubMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (descending) {
+                K key = fromKey;
+                fromKey = toKey;
+                toKey = key;
+                boolean inclusive = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = inclusive;
+            }
+            if (fromKey != null && toKey != null && m.compare(fromKey, toKey) > 0)
+                throw new IllegalArgumentException("fromKey > toKey");
+            K newLo = lo;
+            boolean newLoInclusive = loInclusive;
+            if (fromKey != null) {
+                if (lo != null) {
+                    int c = m.compare(fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+                if (tooHigh(fromKey) && !(hi != null && m.compare(fromKey, hi) == 0 && !fromInclusive))
+                    throw new IllegalArgumentException("key out of range");
+                newLo = fromKey;
+                newLoInclusive = fromInclusive;
+            }
+            K newHi = hi;
+            boolean newHiInclusive = hiInclusive;
+            if (toKey != null) {
+                if (hi != null) {
+                    int c = m.compare(toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+                if (tooLow(toKey) && !(lo != null && m.compare(toKey, lo) == 0 && !toInclusive))
+                    throw new IllegalArgumentException("key out of range");
+                newHi = toKey;
+                newHiInclusive = toInclusive;
+            }
+            return new SubMapView<>(m, newLo, newLoInclusive, newHi, newHiInclusive, descending);
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        /**
+         * Follows the ascending iterator of the map until the upper bound
+         */
+        final class AscendingIterator implements Iterator<Map.Entry<K,V>> {
+            private final Iterator<Map.Entry<K,V>> it = m.entryIterator(lo, loInclusive);
+            private Map.Entry<K,V> next;
+            private Map.Entry<K,V> lastReturned;
+
+            AscendingIterator() {
+                advance();
+            }
+
+            private void advance() {
+                next = it.hasNext() ? it.next() : null;
+                if (next != null && tooHigh(next.getKey()))
+                    next = null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Map.Entry<K,V> next() {
+                Map.Entry<K,V> e = next;
+                if (e == null)
+                    throw new NoSuchElementException();
+                lastReturned = e;
+                advance();
+                return e;
+            }
+
+            /**
+             * The map iterator is already one entry ahead, so the entry is removed by key
+             */
+            public void remove() {
+                if (lastReturned == null)
+                    throw new IllegalStateException();
+                m.remove(lastReturned.getKey());
+                lastReturned = null;
+            }
+        }
+
+        /**
+         * Steps down with lowerEntry until the lower bound, every step is a search
+         */
+        final class DescendingIterator implements Iterator<Map.Entry<K,V>> {
+            private Map.Entry<K,V> next = highest();
+            private Map.Entry<K,V> lastReturned;
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Map.Entry<K,V> next() {
+                Map.Entry<K,V> e = next;
+                if (e == null)
+                    throw new NoSuchElementException();
+                lastReturned = e;
+                next = m.lowerEntry(e.getKey());
+                if (next != null && tooLow(next.getKey()))
+                    next = null;
+                return e;
+            }
+
+            public void remove() {
+                if (lastReturned == null)
+                    throw new IllegalStateException();
+                m.remove(lastReturned.getKey());
+                lastReturned = null;
+            }
+        }
+    }
+}
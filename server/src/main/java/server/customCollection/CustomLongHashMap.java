@@ -0,0 +1,162 @@
+package server.customCollection;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive long keys and open addressing (linear probing).
+ * Keys are never boxed, null values are not allowed.
+ */
+public class CustomLongHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public CustomLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty map, which holds expectedSize mappings without resizing.
+     */
+    public CustomLongHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.min(1 << 30, (long) (expectedSize / LOAD_FACTOR) + 1)));
+    }
+
+    /**
+     * Returns the value to which the key is mapped, or null if this map contains no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if this map contains a mapping for the key.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates the value with the key, returns the previous value or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V oldValue = (V) values[i];
+                values[i] = value;
+                return oldValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+            resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the key, returns the previous value or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V oldValue = (V) values[i];
+                shiftBack(i);
+                size--;
+                return oldValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Closes the gap after removal, so probing chains stay unbroken without tombstones.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null)
+                break;
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int cap) {
+        int n = Integer.highestOneBit(Math.max(cap - 1, 1)) << 1;
+        return Math.max(n, DEFAULT_CAPACITY);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
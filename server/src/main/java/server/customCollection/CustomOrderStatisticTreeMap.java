@@ -0,0 +1,101 @@
+package server.customCollection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Tree map, which keeps the number of entries of every subtree in its root entry.
+ * The position of a key and the entry at a position are found in O(log n),
+ * so a page far from the start is read without walking the entries before it.
+ * Adding or removing an entry updates the counts on its path to the root.
+ */
+public class CustomOrderStatisticTreeMap<K,V> extends CustomTreeMap<K,V> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its keys.
+     */
+    public CustomOrderStatisticTreeMap() {
+        super(null, true);
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given comparator.
+     */
+    public CustomOrderStatisticTreeMap(Comparator<? super K> comparator) {
+        super(comparator, true);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the same ordering as the specified sorted map.
+     */
+    public CustomOrderStatisticTreeMap(SortedMap<K, ? extends V> m) {
+        super(m.comparator(), true);
+        putAll(m);
+    }
+
+    /**
+     * Returns the number of keys less than the given key.
+     */
+    public int rank(K key) {
+        int rank = 0;
+        Entry<K,V> p = getRoot();
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else {
+                rank += countOf(p.left);
+                if (cmp == 0)
+                    return rank;
+                rank++;
+                p = p.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the mapping with the given position in key order.
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public Map.Entry<K,V> select(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return exportEntry(getEntryAt(index));
+    }
+
+    /**
+     * Returns at most limit mappings in key order, starting from the given position.
+     */
+    public List<Map.Entry<K,V>> entriesFrom(int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("Offset: " + offset + ", Limit: " + limit);
+        List<Map.Entry<K,V>> entries = new ArrayList<>(Math.min(limit, Math.max(0, size() - offset)));
+        for (Entry<K,V> e = getEntryAt(offset); e != null && entries.size() < limit; e = successor(e))
+            entries.add(exportEntry(e));
+        return entries;
+    }
+
+    /**
+     * Returns the entry with the given position, or null if there is none.
+     */
+    final Entry<K,V> getEntryAt(int index) {
+        Entry<K,V> p = getRoot();
+        while (p != null) {
+            int left = countOf(p.left);
+            if (index < left)
+                p = p.left;
+            else if (index == left)
+                return p;
+            else {
+                index -= left + 1;
+                p = p.right;
+            }
+        }
+        return null;
+    }
+}
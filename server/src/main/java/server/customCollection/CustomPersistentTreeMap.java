@@ -0,0 +1,468 @@
+package server.customCollection;
+
+import java.util.*;
+
+/**
+ * NavigableMap on a persistent left-leaning red-black tree.
+ * <p>
+ * Published nodes are never changed: an update copies the nodes on the path from the root
+ * to the changed node and sets the new root, so every version of the tree shares all other
+ * nodes with the previous one and costs O(log n) new nodes. A node created by the running
+ * update belongs to it and is changed in place, so the rebalancing does not copy a node twice.
+ * <p>
+ * Reads and iterators take the current root and never block; an iterator walks the version
+ * it was created on and never throws ConcurrentModificationException. Updates are done one
+ * at a time. snapshot() returns an independent map with the current version in O(1).
+ * Null keys and values are not allowed.
+ */
+public class CustomPersistentTreeMap<K,V> extends CustomAbstractNavigableMap<K,V> {
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+    private final Comparator<? super K> comparator;
+    private final Object updateLock = new Object();
+    private volatile Node<K,V> root;
+
+    public CustomPersistentTreeMap() {
+        this.comparator = null;
+    }
+
+    public CustomPersistentTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Map with the same ordering and entries as the given sorted map. All nodes are built by
+     * one update, so they are not copied.
+     */
+    public CustomPersistentTreeMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        Object edit = new Object();
+        Node<K,V> r = null;
+        for (Map.Entry<K, ? extends V> e : m.entrySet())
+            r = blackRoot(put(r, e.getKey(), checkValue(e.getValue()), edit));
+        root = r;
+    }
+
+    private CustomPersistentTreeMap(Comparator<? super K> comparator, Node<K,V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * @return map with the current entries, which shares the tree with this map;
+     * later updates of either map are not seen by the other
+     */
+    public CustomPersistentTreeMap<K,V> snapshot() {
+        return new CustomPersistentTreeMap<>(comparator, root);
+    }
+
+    static final class Node<K,V> implements Map.Entry<K,V> {
+        /**
+         * Update, which created the node and may still change it
+         */
+        final Object edit;
+        K key;
+        V value;
+        Node<K,V> left;
+        Node<K,V> right;
+        boolean color;
+        int size;
+
+        Node(Object edit, K key, V value, Node<K,V> left, Node<K,V> right, boolean color, int size) {
+            this.edit = edit;
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.color = color;
+            this.size = size;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private static <T> T checkValue(T value) {
+        if (value == null)
+            throw new NullPointerException();
+        return value;
+    }
+
+    private static boolean isRed(Node<?,?> n) {
+        return n != null && n.color == RED;
+    }
+
+    private static int size(Node<?,?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    /**
+     * @return the node itself, if it belongs to the update, otherwise its copy
+     */
+    private static <K,V> Node<K,V> own(Node<K,V> n, Object edit) {
+        if (n == null || n.edit == edit)
+            return n;
+        return new Node<>(edit, n.key, n.value, n.left, n.right, n.color, n.size);
+    }
+
+    private static <K,V> Node<K,V> blackRoot(Node<K,V> r) {
+        if (r != null && r.color == RED)
+            r.color = BLACK;
+        return r;
+    }
+
+    private Node<K,V> getNode(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> p = root;
+        while (p != null) {
+            int c = compare(key, p.key);
+            if (c < 0)
+                p = p.left;
+            else if (c > 0)
+                p = p.right;
+            else
+                return p;
+        }
+        return null;
+    }
+
+    /*
+     * Rebalancing after Sedgewick's LLRB. h must belong to the update, children are owned
+     * before they are changed.
+     */
+
+    private static <K,V> Node<K,V> rotateLeft(Node<K,V> h, Object edit) {
+        Node<K,V> x = own(h.right, edit);
+        h.right = x.left;
+        x.left = h;
+        x.color = h.color;
+        h.color = RED;
+        x.size = h.size;
+        h.size = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    private static <K,V> Node<K,V> rotateRight(Node<K,V> h, Object edit) {
+        Node<K,V> x = own(h.left, edit);
+        h.left = x.right;
+        x.right = h;
+        x.color = h.color;
+        h.color = RED;
+        x.size = h.size;
+        h.size = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    private static <K,V> void flipColors(Node<K,V> h, Object edit) {
+        h.color = !h.color;
+        h.left = own(h.left, edit);
+        h.left.color = !h.left.color;
+        h.right = own(h.right, edit);
+        h.right.color = !h.right.color;
+    }
+
+    private static <K,V> Node<K,V> balance(Node<K,V> h, Object edit) {
+        if (isRed(h.right) && !isRed(h.left))
+            h = rotateLeft(h, edit);
+        if (isRed(h.left) && isRed(h.left.left))
+            h = rotateRight(h, edit);
+        if (isRed(h.left) && isRed(h.right))
+            flipColors(h, edit);
+        h.size = size(h.left) + size(h.right) + 1;
+        return h;
+    }
+
+    private static <K,V> Node<K,V> moveRedLeft(Node<K,V> h, Object edit) {
+        flipColors(h, edit);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(own(h.right, edit), edit);
+            h = rotateLeft(h, edit);
+            flipColors(h, edit);
+        }
+        return h;
+    }
+
+    private static <K,V> Node<K,V> moveRedRight(Node<K,V> h, Object edit) {
+        flipColors(h, edit);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h, edit);
+            flipColors(h, edit);
+        }
+        return h;
+    }
+
+    private Node<K,V> put(Node<K,V> h, K key, V value, Object edit) {
+        if (h == null)
+            return new Node<>(edit, key, value, null, null, RED, 1);
+        int c = compare(key, h.key);
+        h = own(h, edit);
+        if (c < 0)
+            h.left = put(h.left, key, value, edit);
+        else if (c > 0)
+            h.right = put(h.right, key, value, edit);
+        else
+            h.value = value;
+        return balance(h, edit);
+    }
+
+    private static <K,V> Node<K,V> min(Node<K,V> h) {
+        while (h.left != null)
+            h = h.left;
+        return h;
+    }
+
+    private static <K,V> Node<K,V> max(Node<K,V> h) {
+        while (h.right != null)
+            h = h.right;
+        return h;
+    }
+
+    private static <K,V> Node<K,V> deleteMin(Node<K,V> h, Object edit) {
+        if (h.left == null)
+            return null;
+        h = own(h, edit);
+        if (!isRed(h.left) && !isRed(h.left.left))
+            h = moveRedLeft(h, edit);
+        h.left = deleteMin(h.left, edit);
+        return balance(h, edit);
+    }
+
+    /**
+     * Removes the key, which must be in the tree
+     */
+    private Node<K,V> delete(Node<K,V> h, Object key, Object edit) {
+        h = own(h, edit);
+        if (compare(key, h.key) < 0) {
+            if (!isRed(h.left) && !isRed(h.left.left))
+                h = moveRedLeft(h, edit);
+            h.left = delete(h.left, key, edit);
+        } else {
+            if (isRed(h.left))
+                h = rotateRight(h, edit);
+            if (compare(key, h.key) == 0 && h.right == null)
+                return null;
+            if (!isRed(h.right) && !isRed(h.right.left))
+                h = moveRedRight(h, edit);
+            if (compare(key, h.key) == 0) {
+                Node<K,V> x = min(h.right);
+                h.key = x.key;
+                h.value = x.value;
+                h.right = deleteMin(h.right, edit);
+            } else {
+                h.right = delete(h.right, key, edit);
+            }
+        }
+        return balance(h, edit);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    public V get(Object key) {
+        Node<K,V> p = getNode(key);
+        return p == null ? null : p.value;
+    }
+
+    public V put(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        synchronized (updateLock) {
+            Node<K,V> r = root;
+            Node<K,V> p = getNode(key);
+            root = blackRoot(put(r, key, value, new Object()));
+            return p == null ? null : p.value;
+        }
+    }
+
+    public V remove(Object key) {
+        synchronized (updateLock) {
+            Node<K,V> p = getNode(key);
+            if (p == null)
+                return null;
+            Object edit = new Object();
+            Node<K,V> r = own(root, edit);
+            if (!isRed(r.left) && !isRed(r.right))
+                r.color = RED;
+            root = blackRoot(delete(r, key, edit));
+            return p.value;
+        }
+    }
+
+    public boolean remove(Object key, Object value) {
+        synchronized (updateLock) {
+            Node<K,V> p = getNode(key);
+            if (p == null || !p.value.equals(value))
+                return false;
+            remove(key);
+            return true;
+        }
+    }
+
+    public void clear() {
+        synchronized (updateLock) {
+            root = null;
+        }
+    }
+
+    public Map.Entry<K,V> firstEntry() {
+        Node<K,V> r = root;
+        return r == null ? null : min(r);
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        Node<K,V> r = root;
+        return r == null ? null : max(r);
+    }
+
+    /**
+     * @return greatest node with key less than (or equal to, if inclusive) the given one
+     */
+    private Node<K,V> below(K key, boolean inclusive) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> found = null;
+        for (Node<K,V> p = root; p != null; ) {
+            int c = compare(key, p.key);
+            if (c > 0 || (c == 0 && inclusive)) {
+                found = p;
+                if (c == 0)
+                    break;
+                p = p.right;
+            } else {
+                p = p.left;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return least node with key greater than (or equal to, if inclusive) the given one
+     */
+    private Node<K,V> above(K key, boolean inclusive) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> found = null;
+        for (Node<K,V> p = root; p != null; ) {
+            int c = compare(key, p.key);
+            if (c < 0 || (c == 0 && inclusive)) {
+                found = p;
+                if (c == 0)
+                    break;
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        }
+        return found;
+    }
+
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return below(key, false);
+    }
+
+    public Map.Entry<K,V> floorEntry(K key) {
+        return below(key, true);
+    }
+
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return above(key, true);
+    }
+
+    public Map.Entry<K,V> higherEntry(K key) {
+        return above(key, false);
+    }
+
+    protected Iterator<Map.Entry<K,V>> entryIterator(K from, boolean inclusive) {
+        return new EntryIterator(root, from, inclusive);
+    }
+
+    /**
+     * In-order walk of one version of the tree with a stack of the nodes, whose
+     * right subtrees are not visited yet
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        private final ArrayDeque<Node<K,V>> stack = new ArrayDeque<>();
+        private Node<K,V> lastReturned;
+
+        EntryIterator(Node<K,V> r, K from, boolean inclusive) {
+            if (from == null) {
+                pushLeft(r);
+                return;
+            }
+            for (Node<K,V> p = r; p != null; ) {
+                int c = compare(from, p.key);
+                if (c < 0 || (c == 0 && inclusive)) {
+                    stack.push(p);
+                    if (c == 0)
+                        break;
+                    p = p.left;
+                } else {
+                    p = p.right;
+                }
+            }
+        }
+
+        private void pushLeft(Node<K,V> p) {
+            for (; p != null; p = p.left)
+                stack.push(p);
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> p = stack.poll();
+            if (p == null)
+                throw new NoSuchElementException();
+            pushLeft(p.right);
+            lastReturned = p;
+            return p;
+        }
+
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            CustomPersistentTreeMap.this.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+}
@@ -0,0 +1,730 @@
+package server.customCollection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free concurrent NavigableMap on a skip list, after the algorithm of
+ * java.util.concurrent.ConcurrentSkipListMap.
+ * <p>
+ * Entries are kept in a sorted linked list of nodes, which is changed only by CAS.
+ * A removed node gets null value first, then a marker node after it and only then
+ * it is unlinked, so an insertion can never be lost behind a removed node.
+ * Levels of index nodes above the list let searches skip over it in expected O(log n),
+ * they are added with probability 1/4 per level and may lag behind the list.
+ * <p>
+ * Iterators and views are weakly consistent: they never throw ConcurrentModificationException
+ * and may or may not show changes made after their creation. Entries returned by the
+ * searches are snapshots. Size is counted, so it is exact only when the map is not changed.
+ * Null keys and values are not allowed.
+ */
+public class CustomSkipListMap<K,V> extends CustomAbstractNavigableMap<K,V> implements ConcurrentMap<K,V> {
+    /**
+     * Value of the header node, which is the first node of the list
+     */
+    private static final Object BASE_HEADER = new Object();
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<CustomSkipListMap, HeadIndex> HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(CustomSkipListMap.class, HeadIndex.class, "head");
+
+    private final Comparator<? super K> comparator;
+    private final LongAdder size = new LongAdder();
+    private transient volatile HeadIndex<K,V> head;
+
+    public CustomSkipListMap() {
+        this.comparator = null;
+        initialize();
+    }
+
+    public CustomSkipListMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        initialize();
+    }
+
+    /**
+     * Map with the same ordering and entries as the given sorted map
+     */
+    public CustomSkipListMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        initialize();
+        for (Map.Entry<K, ? extends V> e : m.entrySet())
+            doPut(e.getKey(), e.getValue(), false);
+    }
+
+    private void initialize() {
+        head = new HeadIndex<>(new Node<>(null, BASE_HEADER, null), null, null, 1);
+    }
+
+    private boolean casHead(HeadIndex<K,V> cmp, HeadIndex<K,V> val) {
+        return HEAD.compareAndSet(this, cmp, val);
+    }
+
+    /**
+     * Node of the base list. Value is null for a removed node and the node itself for a marker.
+     */
+    static final class Node<K,V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+        final K key;
+        volatile Object value;
+        volatile Node<K,V> next;
+
+        Node(K key, Object value, Node<K,V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Marker node, which follows a removed node
+         */
+        Node(Node<K,V> next) {
+            this.key = null;
+            this.value = this;
+            this.next = next;
+        }
+
+        boolean casValue(Object cmp, Object val) {
+            return VALUE.compareAndSet(this, cmp, val);
+        }
+
+        boolean casNext(Node<K,V> cmp, Node<K,V> val) {
+            return NEXT.compareAndSet(this, cmp, val);
+        }
+
+        boolean isBaseHeader() {
+            return value == BASE_HEADER;
+        }
+
+        boolean appendMarker(Node<K,V> f) {
+            return casNext(f, new Node<>(f));
+        }
+
+        /**
+         * Helps a removal of this node with predecessor b and successor f:
+         * appends the marker or unlinks the node with its marker
+         */
+        void helpDelete(Node<K,V> b, Node<K,V> f) {
+            if (f == next && this == b.next) {
+                if (f == null || f.value != f)
+                    casNext(f, new Node<>(f));
+                else
+                    b.casNext(this, f.next);
+            }
+        }
+
+        /**
+         * @return snapshot of the node or null, if it is removed, a marker or the header
+         */
+        @SuppressWarnings("unchecked")
+        SimpleImmutableEntry<K,V> createSnapshot() {
+            Object v = value;
+            if (v == null || v == this || v == BASE_HEADER)
+                return null;
+            return new SimpleImmutableEntry<>(key, (V) v);
+        }
+    }
+
+    static class Index<K,V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Index, Index> RIGHT =
+                AtomicReferenceFieldUpdater.newUpdater(Index.class, Index.class, "right");
+        final Node<K,V> node;
+        final Index<K,V> down;
+        volatile Index<K,V> right;
+
+        Index(Node<K,V> node, Index<K,V> down, Index<K,V> right) {
+            this.node = node;
+            this.down = down;
+            this.right = right;
+        }
+
+        final boolean casRight(Index<K,V> cmp, Index<K,V> val) {
+            return RIGHT.compareAndSet(this, cmp, val);
+        }
+
+        final boolean indexesDeletedNode() {
+            return node.value == null;
+        }
+
+        /**
+         * Inserts newSucc between this and succ, fails if this node is removed
+         */
+        final boolean link(Index<K,V> succ, Index<K,V> newSucc) {
+            newSucc.right = succ;
+            return node.value != null && casRight(succ, newSucc);
+        }
+
+        final boolean unlink(Index<K,V> succ) {
+            return node.value != null && casRight(succ, succ.right);
+        }
+    }
+
+    static final class HeadIndex<K,V> extends Index<K,V> {
+        final int level;
+
+        HeadIndex(Node<K,V> node, Index<K,V> down, Index<K,V> right, int level) {
+            super(node, down, right);
+            this.level = level;
+        }
+    }
+
+    /**
+     * @return base level node with key less than the given one, unlinking indexes of removed nodes on the way
+     */
+    private Node<K,V> findPredecessor(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        for (;;) {
+            for (Index<K,V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;
+                        r = q.right;
+                        continue;
+                    }
+                    if (compare(key, n.key) > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return q.node;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * @return node with the given key or null. Walks from the predecessor and restarts
+     * whenever the predecessor or the node turns out to be removed.
+     */
+    private Node<K,V> findNode(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        outer:
+        for (;;) {
+            for (Node<K,V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                int c;
+                if (n == null)
+                    break outer;
+                Node<K,V> f = n.next;
+                if (n != b.next)
+                    break;
+                if ((v = n.value) == null) {
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)
+                    break;
+                if ((c = compare(key, n.key)) == 0)
+                    return n;
+                if (c < 0)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V doGet(Object key) {
+        for (;;) {
+            Node<K,V> n = findNode(key);
+            if (n == null)
+                return null;
+            Object v = n.value;
+            if (v != null)
+                return (V) v;
+        }
+    }
+
+    /**
+     * Inserts the node into the base list, then builds its index levels
+     * @param onlyIfAbsent do not replace the value of an existing key
+     * @return previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Node<K,V> z;
+        outer:
+        for (;;) {
+            for (Node<K,V> b = findPredecessor(key), n = b.next;;) {
+                if (n != null) {
+                    Object v;
+                    int c;
+                    Node<K,V> f = n.next;
+                    if (n != b.next)
+                        break;
+                    if ((v = n.value) == null) {
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)
+                        break;
+                    if ((c = compare(key, n.key)) > 0) {
+                        b = n;
+                        n = f;
+                        continue;
+                    }
+                    if (c == 0) {
+                        if (onlyIfAbsent || n.casValue(v, value))
+                            return (V) v;
+                        break;
+                    }
+                }
+                z = new Node<>(key, value, n);
+                if (!b.casNext(n, z))
+                    break;
+                break outer;
+            }
+        }
+        size.increment();
+        int rnd = ThreadLocalRandom.current().nextInt();
+        if ((rnd & 0x80000001) == 0)
+            addIndex(z, key, rnd);
+        return null;
+    }
+
+    /**
+     * Builds index levels for the new node z, raising the head by one level if needed
+     * @param rnd random bits, the level is the number of trailing ones after the lowest bit
+     */
+    @SuppressWarnings("unchecked")
+    private void addIndex(Node<K,V> z, K key, int rnd) {
+        int level = 1;
+        int max;
+        while (((rnd >>>= 1) & 1) != 0)
+            ++level;
+        Index<K,V> idx = null;
+        HeadIndex<K,V> h = head;
+        if (level <= (max = h.level)) {
+            for (int i = 1; i <= level; ++i)
+                idx = new Index<>(z, idx, null);
+        } else {
+            level = max + 1;
+            Index<K,V>[] idxs = (Index<K,V>[]) new Index<?,?>[level + 1];
+            for (int i = 1; i <= level; ++i)
+                idxs[i] = idx = new Index<>(z, idx, null);
+            for (;;) {
+                h = head;
+                int oldLevel = h.level;
+                if (level <= oldLevel)
+                    break;
+                HeadIndex<K,V> newh = h;
+                Node<K,V> oldbase = h.node;
+                for (int j = oldLevel + 1; j <= level; ++j)
+                    newh = new HeadIndex<>(oldbase, newh, idxs[j], j);
+                if (casHead(h, newh)) {
+                    h = newh;
+                    idx = idxs[level = oldLevel];
+                    break;
+                }
+            }
+        }
+        splice:
+        for (int insertionLevel = level;;) {
+            int j = h.level;
+            for (Index<K,V> q = h, r = q.right, t = idx;;) {
+                if (q == null || t == null)
+                    break splice;
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    int c = compare(key, n.key);
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;
+                        r = q.right;
+                        continue;
+                    }
+                    if (c > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if (j == insertionLevel) {
+                    if (!q.link(r, t))
+                        break;
+                    if (t.node.value == null) {
+                        findNode(key);
+                        break splice;
+                    }
+                    if (--insertionLevel == 0)
+                        break splice;
+                }
+                if (--j >= insertionLevel && j < level)
+                    t = t.down;
+                q = q.down;
+                r = q.right;
+            }
+        }
+    }
+
+    /**
+     * Removes the node: nulls its value, appends a marker and unlinks it
+     * @param value expected value, null - any
+     * @return removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    private V doRemove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        outer:
+        for (;;) {
+            for (Node<K,V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                int c;
+                if (n == null)
+                    break outer;
+                Node<K,V> f = n.next;
+                if (n != b.next)
+                    break;
+                if ((v = n.value) == null) {
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)
+                    break;
+                if ((c = compare(key, n.key)) < 0)
+                    break outer;
+                if (c > 0) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (value != null && !value.equals(v))
+                    break outer;
+                if (!n.casValue(v, null))
+                    break;
+                if (!n.appendMarker(f) || !b.casNext(n, f)) {
+                    findNode(key);
+                } else {
+                    findPredecessor(key);
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                size.decrement();
+                return (V) v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the top level, if three top levels are empty. Rechecks after the CAS and
+     * restores the level, if an insertion came meanwhile.
+     */
+    private void tryReduceLevel() {
+        HeadIndex<K,V> h = head;
+        HeadIndex<K,V> d;
+        HeadIndex<K,V> e;
+        if (h.level > 3 &&
+                (d = (HeadIndex<K,V>) h.down) != null &&
+                (e = (HeadIndex<K,V>) d.down) != null &&
+                e.right == null &&
+                d.right == null &&
+                h.right == null &&
+                casHead(h, d) &&
+                h.right != null)
+            casHead(d, h);
+    }
+
+    private Node<K,V> findFirst() {
+        for (Node<K,V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            if (n.value != null)
+                return n;
+            n.helpDelete(b, n.next);
+        }
+    }
+
+    /**
+     * Goes right and down the index levels, then along the base list to its last node
+     */
+    private Node<K,V> findLast() {
+        Index<K,V> q = head;
+        for (;;) {
+            Index<K,V> d;
+            Index<K,V> r;
+            if ((r = q.right) != null) {
+                if (r.indexesDeletedNode()) {
+                    q.unlink(r);
+                    q = head;
+                } else {
+                    q = r;
+                }
+            } else if ((d = q.down) != null) {
+                q = d;
+            } else {
+                for (Node<K,V> b = q.node, n = b.next;;) {
+                    if (n == null)
+                        return b.isBaseHeader() ? null : b;
+                    Node<K,V> f = n.next;
+                    if (n != b.next)
+                        break;
+                    Object v = n.value;
+                    if (v == null) {
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)
+                        break;
+                    b = n;
+                    n = f;
+                }
+                q = head;
+            }
+        }
+    }
+
+    /**
+     * @param rel combination of EQ, LT and GT
+     * @return nearest node to the key in the relation or null
+     */
+    private Node<K,V> findNear(K key, int rel) {
+        if (key == null)
+            throw new NullPointerException();
+        for (;;) {
+            for (Node<K,V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+                Node<K,V> f = n.next;
+                if (n != b.next)
+                    break;
+                if ((v = n.value) == null) {
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)
+                    break;
+                int c = compare(key, n.key);
+                if ((c == 0 && (rel & EQ) != 0) || (c < 0 && (rel & LT) == 0))
+                    return n;
+                if (c <= 0 && (rel & LT) != 0)
+                    return b.isBaseHeader() ? null : b;
+                b = n;
+                n = f;
+            }
+        }
+    }
+
+    private Map.Entry<K,V> getNear(K key, int rel) {
+        for (;;) {
+            Node<K,V> n = findNear(key, rel);
+            if (n == null)
+                return null;
+            Map.Entry<K,V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    public int size() {
+        long n = size.sum();
+        return n >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(n, 0);
+    }
+
+    public boolean isEmpty() {
+        return findFirst() == null;
+    }
+
+    public boolean containsKey(Object key) {
+        return doGet(key) != null;
+    }
+
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Node<K,V> n = findFirst(); n != null; n = n.next) {
+            Object v = n.value;
+            if (v != null && v != n && value.equals(v))
+                return true;
+        }
+        return false;
+    }
+
+    public V get(Object key) {
+        return doGet(key);
+    }
+
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && doRemove(key, value) != null;
+    }
+
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<K,V> n = findNode(key);
+            if (n == null)
+                return false;
+            Object v = n.value;
+            if (v != null) {
+                if (!oldValue.equals(v))
+                    return false;
+                if (n.casValue(v, newValue))
+                    return true;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<K,V> n = findNode(key);
+            if (n == null)
+                return null;
+            Object v = n.value;
+            if (v != null && n.casValue(v, value))
+                return (V) v;
+        }
+    }
+
+    /**
+     * Removes entries one by one, so the keys inserted meanwhile may stay
+     */
+    public void clear() {
+        for (Node<K,V> n = findFirst(); n != null; n = findFirst())
+            doRemove(n.key, null);
+    }
+
+    public Map.Entry<K,V> firstEntry() {
+        for (;;) {
+            Node<K,V> n = findFirst();
+            if (n == null)
+                return null;
+            Map.Entry<K,V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        for (;;) {
+            Node<K,V> n = findLast();
+            if (n == null)
+                return null;
+            Map.Entry<K,V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return getNear(key, LT);
+    }
+
+    public Map.Entry<K,V> floorEntry(K key) {
+        return getNear(key, LT | EQ);
+    }
+
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return getNear(key, GT | EQ);
+    }
+
+    public Map.Entry<K,V> higherEntry(K key) {
+        return getNear(key, GT);
+    }
+
+    protected Iterator<Map.Entry<K,V>> entryIterator(K from, boolean inclusive) {
+        return new EntryIterator(from, inclusive);
+    }
+
+    /**
+     * Walks the base list, skipping removed nodes and markers. Value is read
+     * when the iterator steps on the node, so the entry shows the value of that moment.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        private Node<K,V> lastReturned;
+        private Node<K,V> next;
+        private V nextValue;
+
+        @SuppressWarnings("unchecked")
+        EntryIterator(K from, boolean inclusive) {
+            for (;;) {
+                next = from == null ? findFirst() : findNear(from, inclusive ? GT | EQ : GT);
+                if (next == null)
+                    break;
+                Object x = next.value;
+                if (x != null && x != next) {
+                    nextValue = (V) x;
+                    break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            lastReturned = next;
+            while ((next = next.next) != null) {
+                Object x = next.value;
+                if (x != null && x != next) {
+                    nextValue = (V) x;
+                    break;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> n = next;
+            if (n == null)
+                throw new NoSuchElementException();
+            V v = nextValue;
+            advance();
+            return new SimpleImmutableEntry<>(n.key, v);
+        }
+
+        public void remove() {
+            Node<K,V> l = lastReturned;
+            if (l == null)
+                throw new IllegalStateException();
+            doRemove(l.key, null);
+            lastReturned = null;
+        }
+    }
+}
@@ -4,7 +4,14 @@ import java.io.IOException;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongBiFunction;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements NavigableMap<K,V>, Cloneable, java.io.Serializable {
 
@@ -12,6 +19,7 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
     private Entry<K,V> root;
     private int size = 0;
     private int modCount = 0;
+    private final boolean countsSubtrees;
     private static final boolean RED   = false;
     private static final boolean BLACK = true;
     private EntrySet entrySet;
@@ -22,14 +30,22 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
      * Constructs a new, empty tree map, using the natural ordering of its keys.
      */
     public CustomTreeMap() {
-        comparator = null;
+        this(null, false);
     }
 
     /**
      * Constructs a new, empty tree map, ordered according to the given comparator.
      */
     public CustomTreeMap(Comparator<? super K> comparator) {
+        this(comparator, false);
+    }
+
+    /**
+     * @param countsSubtrees keep the number of entries of every subtree in its root entry
+     */
+    CustomTreeMap(Comparator<? super K> comparator, boolean countsSubtrees) {
         this.comparator = comparator;
+        this.countsSubtrees = countsSubtrees;
     }
 
     /**
@@ -37,7 +53,7 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
      Constructs a new tree map containing the same mappings as the given map, ordered according to the natural ordering of its keys.
      */
     public CustomTreeMap(Map<? extends K, ? extends V> m) {
-        comparator = null;
+        this(null, false);
         putAll(m);
     }
 
@@ -45,8 +61,8 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
      * Constructs a new tree map containing the same mappings and using the same ordering as the specified sorted map.
      */
     public CustomTreeMap(SortedMap<K, ? extends V> m) {
+        this(m.comparator(), false);
         putAll(m);
-        comparator = m.comparator();
     }
 
     /**
@@ -343,6 +359,8 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
             parent.left = e;
         else
             parent.right = e;
+        if (countsSubtrees)
+            addToCounts(parent, 1);
         fixAfterInsertion(e);
         size++;
         modCount++;
@@ -410,6 +428,118 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         return false;
     }
 
+    /**
+     * If the key is not mapped to a value, associates it with the given value. The tree is walked once.
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Entry<K,V> p = getEntryOrParent(key);
+        int cmp = p == null ? 0 : compare(key, p.key);
+        if (p != null && cmp == 0) {
+            V oldValue = p.value;
+            if (oldValue == null)
+                p.value = value;
+            return oldValue;
+        }
+        addEntry(key, value, p, cmp);
+        return null;
+    }
+
+    /**
+     * If the key is not mapped to a value, computes one with the function and stores it unless it is null.
+     * The tree is walked once.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Entry<K,V> p = getEntryOrParent(key);
+        int cmp = p == null ? 0 : compare(key, p.key);
+        if (p != null && cmp == 0 && p.value != null)
+            return p.value;
+        int expectedModCount = modCount;
+        V newValue = mappingFunction.apply(key);
+        if (expectedModCount != modCount)
+            throw new ConcurrentModificationException();
+        if (newValue != null) {
+            if (p != null && cmp == 0)
+                p.value = newValue;
+            else
+                addEntry(key, newValue, p, cmp);
+        }
+        return newValue;
+    }
+
+    /**
+     * If the key is mapped to a value, replaces it with the result of the function, or removes the entry
+     * if the result is null. The tree is walked once.
+     */
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Entry<K,V> p = getEntry(key);
+        if (p == null || p.value == null)
+            return null;
+        int expectedModCount = modCount;
+        return remap(p, expectedModCount, remappingFunction.apply(key, p.value));
+    }
+
+    /**
+     * Replaces the value of the key with the result of the function, which gets null for a missing key.
+     * A null result removes the entry. The tree is walked once.
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Entry<K,V> p = getEntryOrParent(key);
+        int cmp = p == null ? 0 : compare(key, p.key);
+        int expectedModCount = modCount;
+        if (p != null && cmp == 0)
+            return remap(p, expectedModCount, remappingFunction.apply(key, p.value));
+        V newValue = remappingFunction.apply(key, null);
+        if (expectedModCount != modCount)
+            throw new ConcurrentModificationException();
+        if (newValue != null)
+            addEntry(key, newValue, p, cmp);
+        return newValue;
+    }
+
+    /**
+     * Associates a missing key with the given value, otherwise replaces the value with the result of
+     * the function on the old and the given values; a null result removes the entry. The tree is walked once.
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        Entry<K,V> p = getEntryOrParent(key);
+        int cmp = p == null ? 0 : compare(key, p.key);
+        if (p == null || cmp != 0) {
+            addEntry(key, value, p, cmp);
+            return value;
+        }
+        if (p.value == null) {
+            p.value = value;
+            return value;
+        }
+        int expectedModCount = modCount;
+        return remap(p, expectedModCount, remappingFunction.apply(p.value, value));
+    }
+
+    /**
+     * Store the result of a remapping function in the entry found before calling it
+     * @param expectedModCount modCount before the function was called
+     * @throws ConcurrentModificationException if the function changed the map, so the entry may be detached
+     */
+    private V remap(Entry<K,V> p, int expectedModCount, V newValue) {
+        if (expectedModCount != modCount)
+            throw new ConcurrentModificationException();
+        if (newValue == null)
+            deleteEntry(p);
+        else
+            p.value = newValue;
+        return newValue;
+    }
+
     /**
      * Replaces each entry's value with the result of invoking the given function on that entry until all entries have been processed or the function throws an exception.
      */
@@ -427,6 +557,90 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         }
     }
 
+    /**
+     * Performs the given action for each entry, in parallel if the map has at least parallelismThreshold entries.
+     * The action may be called from several threads at once, in no particular order.
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        bulk(parallelismThreshold, e -> {
+            action.accept(e.key, e.value);
+            return null;
+        }, (a, b) -> a, null);
+    }
+
+    /**
+     * Returns a non-null result of the function on some entry, or null if there is none.
+     * Once a result is found the other subtrees are not searched further.
+     */
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        Objects.requireNonNull(searchFunction);
+        return bulk(parallelismThreshold, e -> searchFunction.apply(e.key, e.value), (a, b) -> a, new AtomicReference<>());
+    }
+
+    /**
+     * Returns the result of combining the transformed entries with the reducer, or null if there are none.
+     * Null results of the transformer are skipped. The reducer gets the results in key order.
+     */
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        Objects.requireNonNull(transformer);
+        Objects.requireNonNull(reducer);
+        return bulk(parallelismThreshold, e -> transformer.apply(e.key, e.value), reducer, null);
+    }
+
+    /**
+     * Returns the result of combining the transformed entries with the reducer, starting from the basis.
+     * Values are not boxed; the reducer should be associative and the basis its identity.
+     */
+    public long reduceToLong(long parallelismThreshold, ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis, LongBinaryOperator reducer) {
+        Objects.requireNonNull(transformer);
+        Objects.requireNonNull(reducer);
+        int expectedModCount = modCount;
+        LongBulkTask<K,V> task = new LongBulkTask<>(root, size, batchSize(parallelismThreshold), transformer, basis, reducer);
+        long result = size < parallelismThreshold ? task.walk(root) : task.invoke();
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        return result;
+    }
+
+    /**
+     * Replaces each entry's value with the result of the function, in parallel if the map has at least
+     * parallelismThreshold entries. The keys stay in place, so the tree is not changed.
+     */
+    public void replaceAll(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        bulk(parallelismThreshold, e -> {
+            e.value = function.apply(e.key, e.value);
+            return null;
+        }, (a, b) -> a, null);
+    }
+
+    /**
+     * Runs the visitor over all entries, splitting the tree into subtrees for the fork-join pool
+     * of the calling thread, or the common pool.
+     * @param found shared result of a search, or null to visit all entries
+     */
+    private <U> U bulk(long parallelismThreshold, Function<Entry<K,V>, ? extends U> visitor,
+                       BiFunction<? super U, ? super U, ? extends U> reducer, AtomicReference<U> found) {
+        int expectedModCount = modCount;
+        BulkTask<K,V,U> task = new BulkTask<>(root, size, batchSize(parallelismThreshold), visitor, reducer, found);
+        U result = size < parallelismThreshold ? task.walk(root) : task.invoke();
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        return found != null ? found.get() : result;
+    }
+
+    /**
+     * Subtrees of at most this many entries are walked by one task
+     */
+    private long batchSize(long parallelismThreshold) {
+        int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(Math.max(parallelismThreshold, 1), size / (parallelism * 4L));
+    }
+
     /**
      * Returns the number of key-value mappings in this map.
      */
@@ -485,6 +699,7 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         Entry<K,V> right;
         Entry<K,V> parent;
         boolean color = BLACK;
+        int count = 1;
 
         Entry(K key, V value, Entry<K,V> parent) {
             this.key = key;
@@ -574,6 +789,53 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         return null;
     }
 
+    /**
+     * Returns the root entry of the tree, or null if the map is empty.
+     */
+    final Entry<K,V> getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the entry for the key, or the entry, under which an entry with this key would be added,
+     * or null if the map is empty. The caller tells them apart by comparing the key once more.
+     */
+    final Entry<K,V> getEntryOrParent(K key) {
+        Entry<K,V> p = root;
+        if (p == null) {
+            compare(key, key);
+            return null;
+        }
+        while (true) {
+            int cmp = compare(key, p.key);
+            Entry<K,V> next = cmp < 0 ? p.left : p.right;
+            if (cmp == 0 || next == null)
+                return p;
+            p = next;
+        }
+    }
+
+    /**
+     * Adds a new entry under the parent found by getEntryOrParent
+     * @param cmp result of comparing the key with the parent's key
+     */
+    private void addEntry(K key, V value, Entry<K,V> parent, int cmp) {
+        Entry<K,V> e = new Entry<>(key, value, parent);
+        if (parent == null)
+            root = e;
+        else {
+            if (cmp < 0)
+                parent.left = e;
+            else
+                parent.right = e;
+            if (countsSubtrees)
+                addToCounts(parent, 1);
+            fixAfterInsertion(e);
+        }
+        size++;
+        modCount++;
+    }
+
     final Entry<K,V> getCeilingEntry(K key) {
         Entry<K,V> p = root;
         while (p != null) {
@@ -755,6 +1017,10 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
                 p.parent.right = r;
             r.left = p;
             p.parent = r;
+            if (countsSubtrees) {
+                r.count = p.count;
+                p.count = countOf(p.left) + countOf(p.right) + 1;
+            }
         }
     }
 
@@ -771,8 +1037,27 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
             else p.parent.left = l;
             l.right = p;
             p.parent = l;
+            if (countsSubtrees) {
+                l.count = p.count;
+                p.count = countOf(p.left) + countOf(p.right) + 1;
+            }
         }
     }
+
+    /**
+     * Returns the number of entries in the subtree, if the map counts subtrees
+     */
+    static <K,V> int countOf(Entry<K,V> p) {
+        return p == null ? 0 : p.count;
+    }
+
+    /**
+     * Adds the difference to the counts of the entry and all its ancestors
+     */
+    private static <K,V> void addToCounts(Entry<K,V> p, int difference) {
+        for (; p != null; p = p.parent)
+            p.count += difference;
+    }
     private void deleteEntry(Entry<K,V> p) {
         modCount++;
         size--;
@@ -782,6 +1067,11 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
             p.value = s.value;
             p = s;
         }
+        if (countsSubtrees) {
+            // a removed leaf stays linked during fixAfterDeletion, so it must count for nothing there
+            p.count = 0;
+            addToCounts(p.parent, -1);
+        }
         Entry<K,V> replacement = (p.left != null ? p.left : p.right);
         if (replacement != null) {
             replacement.parent = p.parent;
@@ -915,6 +1205,10 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
             return new ValueIterator(getFirstEntry());
         }
 
+        public Spliterator<V> spliterator() {
+            return new TreeSpliterator<>(CustomTreeMap.this, entry -> entry.value, Spliterator.ORDERED);
+        }
+
         public int size() {
             return CustomTreeMap.this.size();
         }
@@ -944,6 +1238,11 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
             return new EntryIterator(getFirstEntry());
         }
 
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return new TreeSpliterator<>(CustomTreeMap.this, entry -> entry,
+                    Spliterator.DISTINCT | Spliterator.ORDERED);
+        }
+
         public boolean contains(Object o) {
             if (!(o instanceof Map.Entry))
                 return false;
@@ -984,6 +1283,11 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         return new DescendingKeyIterator(getLastEntry());
     }
 
+    Spliterator<K> keySpliterator() {
+        return new TreeSpliterator<>(this, entry -> entry.key,
+                Spliterator.DISTINCT | Spliterator.ORDERED | Spliterator.SORTED);
+    }
+
     static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
         private final NavigableMap<E, ?> m;
         KeySet(NavigableMap<E,?> map) { m = map; }
@@ -1002,6 +1306,13 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
                 return ((CustomTreeMap.NavigableSubMap<E,?>)m).descendingKeyIterator();
         }
 
+        public Spliterator<E> spliterator() {
+            if (m instanceof CustomTreeMap)
+                return ((CustomTreeMap<E,?>)m).keySpliterator();
+            else
+                return NavigableSet.super.spliterator();
+        }
+
         public int size() { return m.size(); }
         public boolean isEmpty() { return m.isEmpty(); }
         public boolean contains(Object o) { return m.containsKey(o); }
@@ -1051,6 +1362,218 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         }
     }
 
+    /**
+     * Spliterator over the whole map in ascending key order. The first split divides the tree at the root,
+     * every next one at the root of the subtree, which the remaining part starts or ends with,
+     * so the parts are about equal and are found without walking the entries.
+     * It is late-binding and fail-fast; only the unsplit spliterator knows its exact size.
+     */
+    static final class TreeSpliterator<K,V,T> implements Spliterator<T> {
+        private final CustomTreeMap<K,V> tree;
+        private final Function<Entry<K,V>, T> element;
+        private final int characteristics;
+        private Entry<K,V> current;
+        private Entry<K,V> fence;
+        private int side;
+        private int estimate;
+        private int expectedModCount;
+
+        TreeSpliterator(CustomTreeMap<K,V> tree, Function<Entry<K,V>, T> element, int characteristics) {
+            this(tree, element, characteristics, null, null, 0, -1, 0);
+        }
+
+        /**
+         * @param current first entry of the part
+         * @param fence first entry after the part, null - to the end
+         * @param side 0 - whole tree, 1 - the part is a right subtree, -1 - the part is a left subtree
+         * @param estimate size estimate, -1 - not bound to the tree yet
+         */
+        private TreeSpliterator(CustomTreeMap<K,V> tree, Function<Entry<K,V>, T> element, int characteristics,
+                                Entry<K,V> current, Entry<K,V> fence, int side, int estimate, int expectedModCount) {
+            this.tree = tree;
+            this.element = element;
+            this.characteristics = characteristics;
+            this.current = current;
+            this.fence = fence;
+            this.side = side;
+            this.estimate = estimate;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int bind() {
+            if (estimate < 0) {
+                current = tree.getFirstEntry();
+                estimate = tree.size;
+                expectedModCount = tree.modCount;
+            }
+            return estimate;
+        }
+
+        public Spliterator<T> trySplit() {
+            bind();
+            Entry<K,V> first = current;
+            Entry<K,V> split;
+            if (first == null || first == fence) split = null;
+            else if (side == 0) split = tree.root;
+            else if (side > 0) split = first.right;
+            else split = fence != null ? fence.left : null;
+            if (split == null || split == first || split == fence || tree.compare(first.key, split.key) >= 0)
+                return null;
+            side = 1;
+            current = split;
+            estimate >>>= 1;
+            return new TreeSpliterator<>(tree, element, characteristics, first, split, -1, estimate, expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            bind();
+            Entry<K,V> entry = current;
+            if (entry == null || entry == fence)
+                return false;
+            current = successor(entry);
+            action.accept(element.apply(entry));
+            if (tree.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            bind();
+            Entry<K,V> entry = current;
+            Entry<K,V> end = fence;
+            current = end;
+            for (; entry != null && entry != end; entry = successor(entry))
+                action.accept(element.apply(entry));
+            if (tree.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return bind();
+        }
+
+        public int characteristics() {
+            return characteristics | (side == 0 ? Spliterator.SIZED : 0);
+        }
+
+        public Comparator<? super T> getComparator() {
+            if ((characteristics & Spliterator.SORTED) == 0)
+                throw new IllegalStateException();
+            @SuppressWarnings("unchecked")
+            Comparator<? super T> comparator = (Comparator<? super T>) tree.comparator;
+            return comparator;
+        }
+    }
+
+    /**
+     * Task over a subtree of the map. While the subtree is larger than the batch, the left subtree
+     * is forked and the right one is processed by the same task; the size of a subtree is estimated
+     * as half of its parent's, the tree being balanced. Results are combined in key order.
+     */
+    static final class BulkTask<K,V,U> extends RecursiveTask<U> {
+        private static final long serialVersionUID = 1L;
+        private final Entry<K,V> node;
+        private final long estimate;
+        private final long batch;
+        private final Function<Entry<K,V>, ? extends U> visitor;
+        private final BiFunction<? super U, ? super U, ? extends U> reducer;
+        private final AtomicReference<U> found;
+
+        BulkTask(Entry<K,V> node, long estimate, long batch, Function<Entry<K,V>, ? extends U> visitor,
+                 BiFunction<? super U, ? super U, ? extends U> reducer, AtomicReference<U> found) {
+            this.node = node;
+            this.estimate = estimate;
+            this.batch = batch;
+            this.visitor = visitor;
+            this.reducer = reducer;
+            this.found = found;
+        }
+
+        @Override
+        protected U compute() {
+            if (node == null || estimate <= batch)
+                return walk(node);
+            BulkTask<K,V,U> left = new BulkTask<>(node.left, estimate >>> 1, batch, visitor, reducer, found);
+            left.fork();
+            U result = visit(node);
+            U right = new BulkTask<>(node.right, estimate >>> 1, batch, visitor, reducer, found).compute();
+            return combine(combine(left.join(), result), right);
+        }
+
+        /**
+         * Visit the subtree in this thread
+         */
+        U walk(Entry<K,V> e) {
+            if (e == null)
+                return null;
+            U left = walk(e.left);
+            U result = combine(left, visit(e));
+            return combine(result, walk(e.right));
+        }
+
+        private U visit(Entry<K,V> e) {
+            if (found == null)
+                return visitor.apply(e);
+            if (found.get() != null)
+                return null;
+            U result = visitor.apply(e);
+            if (result != null)
+                found.compareAndSet(null, result);
+            return result;
+        }
+
+        private U combine(U a, U b) {
+            if (a == null)
+                return b;
+            return b == null ? a : reducer.apply(a, b);
+        }
+    }
+
+    /**
+     * BulkTask reducing the entries to a long
+     */
+    static final class LongBulkTask<K,V> extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final Entry<K,V> node;
+        private final long estimate;
+        private final long batch;
+        private final ToLongBiFunction<? super K, ? super V> transformer;
+        private final long basis;
+        private final LongBinaryOperator reducer;
+
+        LongBulkTask(Entry<K,V> node, long estimate, long batch, ToLongBiFunction<? super K, ? super V> transformer,
+                     long basis, LongBinaryOperator reducer) {
+            this.node = node;
+            this.estimate = estimate;
+            this.batch = batch;
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected Long compute() {
+            if (node == null || estimate <= batch)
+                return walk(node);
+            LongBulkTask<K,V> left = new LongBulkTask<>(node.left, estimate >>> 1, batch, transformer, basis, reducer);
+            left.fork();
+            long result = reducer.applyAsLong(basis, transformer.applyAsLong(node.key, node.value));
+            result = reducer.applyAsLong(result, new LongBulkTask<>(node.right, estimate >>> 1, batch, transformer, basis, reducer).compute());
+            return reducer.applyAsLong(left.join(), result);
+        }
+
+        long walk(Entry<K,V> e) {
+            long result = basis;
+            for (; e != null; e = e.right) {
+                result = reducer.applyAsLong(result, walk(e.left));
+                result = reducer.applyAsLong(result, transformer.applyAsLong(e.key, e.value));
+            }
+            return result;
+        }
+    }
+
     abstract class PrivateEntryIterator<T> implements Iterator<T> {
         Entry<K,V> next;
         Entry<K,V> lastReturned;
@@ -1791,6 +2314,19 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
     }
 
 
+    /**
+     * Builds this empty map in linear time from size entries with strictly ascending keys.
+     */
+    public void buildFromSorted(int size, Iterator<? extends Map.Entry<? extends K, ? extends V>> sortedEntries) {
+        if (this.size != 0)
+            throw new IllegalStateException("Map is not empty");
+        ++modCount;
+        try {
+            buildFromSorted(size, sortedEntries, null, null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
     private void buildFromSorted(int size, Iterator<?> it, java.io.ObjectInputStream str, V defaultVal) throws  java.io.IOException, ClassNotFoundException {
         this.size = size;
         root = buildFromSorted(0, 0, size-1, computeRedLevel(size),
@@ -1821,6 +2357,7 @@ public class CustomTreeMap<K,V> extends CustomAbstractMap<K,V> implements Naviga
         }
 
         Entry<K,V> middle =  new Entry<>(key, value, null);
+        middle.count = hi - lo + 1;
 
         if (level == redLevel)
             middle.color = RED;
@@ -1,4 +1,4 @@
 /**
- * Package, which contains Custom TreeMap implementation;
+ * Package, which contains Custom TreeMap and concurrent skip list implementations;
  */
 package server.customCollection;
\ No newline at end of file
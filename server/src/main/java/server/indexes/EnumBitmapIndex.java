@@ -0,0 +1,86 @@
+package server.indexes;
+
+import java.util.EnumSet;
+
+/**
+ * Bitmap index of an enum field: for every constant a bitmap of the slots of elements, which have it.
+ * Elements without a value are in none of the bitmaps. The index is not thread safe.
+ * @param <E> enum type of the field
+ */
+public class EnumBitmapIndex<E extends Enum<E>> {
+    private final Class<E> type;
+    private final RoaringBitmap[] bitmaps;
+
+    public EnumBitmapIndex(Class<E> type) {
+        this.type = type;
+        bitmaps = new RoaringBitmap[type.getEnumConstants().length];
+        for (int i = 0; i < bitmaps.length; i++) bitmaps[i] = new RoaringBitmap();
+    }
+
+    public void add(int slot, E value) {
+        if (value != null) bitmaps[value.ordinal()].add(slot);
+    }
+
+    public void remove(int slot, E value) {
+        if (value != null) bitmaps[value.ordinal()].remove(slot);
+    }
+
+    public void clear() {
+        for (RoaringBitmap bitmap : bitmaps) bitmap.clear();
+    }
+
+    /**
+     * @return new bitmap of the slots of elements, which value is one of the given
+     */
+    public RoaringBitmap select(EnumSet<E> values) {
+        RoaringBitmap selected = new RoaringBitmap();
+        for (E value : values) selected = selected.or(bitmaps[value.ordinal()]);
+        return selected;
+    }
+
+    /**
+     * Select elements by a condition on the field
+     * @param operator "=" or "!=" with values separated by '|', "&gt;" or "&lt;" with one value
+     * @param values names of constants in any case
+     * @return new bitmap of the slots of matching elements
+     * @throws IllegalArgumentException If the operator or a constant is unknown
+     */
+    public RoaringBitmap select(String operator, String values) {
+        EnumSet<E> selected = EnumSet.noneOf(type);
+        switch (operator) {
+            case "=":
+            case "!=":
+                for (String value : values.split("\\|")) selected.add(constant(value));
+                if (operator.equals("!=")) selected = EnumSet.complementOf(selected);
+                break;
+            case ">":
+                selected = EnumSet.range(constant(values), last());
+                selected.remove(constant(values));
+                break;
+            case "<":
+                selected = EnumSet.range(first(), constant(values));
+                selected.remove(constant(values));
+                break;
+            default:
+                throw new IllegalArgumentException("неизвестная операция '" + operator + "'");
+        }
+        return select(selected);
+    }
+
+    private E constant(String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException err) {
+            throw new IllegalArgumentException("нет значения '" + value + "' в " + type.getSimpleName());
+        }
+    }
+
+    private E first() {
+        return type.getEnumConstants()[0];
+    }
+
+    private E last() {
+        E[] constants = type.getEnumConstants();
+        return constants[constants.length - 1];
+    }
+}
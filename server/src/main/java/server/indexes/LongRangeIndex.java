@@ -0,0 +1,203 @@
+package server.indexes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Sorted index of elements by a long value. Entries (value, key, element) are ordered by value,
+ * entries with equal values - by key, and are kept in sorted blocks of at most BLOCK_SIZE entries.
+ * A change shifts entries of one block only, a range query finds its first entry by binary search
+ * and then reads the entries one after another, so it takes O(log n + k).
+ * The index is not thread safe.
+ * @param <V> type of elements
+ */
+public class LongRangeIndex<V> {
+    private static final int BLOCK_SIZE = 512;
+    private final List<Block<V>> blocks = new ArrayList<>();
+    private int size;
+
+    public LongRangeIndex() {
+        blocks.add(new Block<>());
+    }
+
+    /**
+     * Add entry to the index or replace the element of an existing entry
+     * @param value value to order by
+     * @param key key of element in the collection
+     * @param element element
+     */
+    public void add(long value, String key, V element) {
+        int blockIndex = blockOf(value, key);
+        Block<V> block = blocks.get(blockIndex);
+        int position = block.search(value, key);
+        if (position >= 0) {
+            block.elements[position] = element;
+            return;
+        }
+        block.insert(-position - 1, value, key, element);
+        size++;
+        if (block.size == BLOCK_SIZE) blocks.add(blockIndex + 1, block.split());
+    }
+
+    /**
+     * Remove entry from the index
+     * @param value value, which the entry was added with
+     * @param key key of element in the collection
+     * @return true, if the entry was in the index
+     */
+    public boolean remove(long value, String key) {
+        int blockIndex = blockOf(value, key);
+        Block<V> block = blocks.get(blockIndex);
+        int position = block.search(value, key);
+        if (position < 0) return false;
+        block.delete(position);
+        size--;
+        if (block.size == 0 && blocks.size() > 1) blocks.remove(blockIndex);
+        return true;
+    }
+
+    public void clear() {
+        blocks.clear();
+        blocks.add(new Block<>());
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Pass the entries with from &lt;= value &lt;= to to the action in the order of the index
+     * @param action receives key and element of every entry
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachInRange(long from, long to, BiConsumer<String, ? super V> action) {
+        if (from > to) return;
+        int blockIndex = firstBlockFor(from);
+        int position = blocks.get(blockIndex).lowerBound(from);
+        for (; blockIndex < blocks.size(); blockIndex++, position = 0) {
+            Block<V> block = blocks.get(blockIndex);
+            for (; position < block.size; position++) {
+                if (block.values[position] > to) return;
+                action.accept(block.keys[position], (V) block.elements[position]);
+            }
+        }
+    }
+
+    /**
+     * @return index of the last block, which first entry is not greater than (value, key), or 0
+     */
+    private int blockOf(long value, String key) {
+        int low = 1;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(middle).compareFirst(value, key) >= 0) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high < 1 ? 0 : high;
+    }
+
+    /**
+     * @return index of the last block, which first value is less than value, or 0
+     */
+    private int firstBlockFor(long value) {
+        int low = 1;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(middle).values[0] < value) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high < 1 ? 0 : high;
+    }
+
+    /**
+     * Sorted part of the index
+     */
+    private static final class Block<V> {
+        final long[] values = new long[BLOCK_SIZE];
+        final String[] keys = new String[BLOCK_SIZE];
+        final Object[] elements = new Object[BLOCK_SIZE];
+        int size;
+
+        int compareFirst(long value, String key) {
+            return compareAt(0, value, key);
+        }
+
+        private int compareAt(int position, long value, String key) {
+            int compare = Long.compare(value, values[position]);
+            return compare != 0 ? compare : key.compareTo(keys[position]);
+        }
+
+        /**
+         * @return position of the entry, or (-(insertion point) - 1), if it is not in the block
+         */
+        int search(long value, String key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int compare = compareAt(middle, value, key);
+                if (compare > 0) low = middle + 1;
+                else if (compare < 0) high = middle - 1;
+                else return middle;
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * @return position of the first entry with a value not less than value, or size
+         */
+        int lowerBound(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        void insert(int position, long value, String key, Object element) {
+            int moved = size - position;
+            System.arraycopy(values, position, values, position + 1, moved);
+            System.arraycopy(keys, position, keys, position + 1, moved);
+            System.arraycopy(elements, position, elements, position + 1, moved);
+            values[position] = value;
+            keys[position] = key;
+            elements[position] = element;
+            size++;
+        }
+
+        void delete(int position) {
+            int moved = size - position - 1;
+            System.arraycopy(values, position + 1, values, position, moved);
+            System.arraycopy(keys, position + 1, keys, position, moved);
+            System.arraycopy(elements, position + 1, elements, position, moved);
+            size--;
+            keys[size] = null;
+            elements[size] = null;
+        }
+
+        /**
+         * Move the upper half of the block to a new block
+         * @return new block
+         */
+        Block<V> split() {
+            Block<V> upper = new Block<>();
+            int half = size / 2;
+            upper.size = size - half;
+            System.arraycopy(values, half, upper.values, 0, upper.size);
+            System.arraycopy(keys, half, upper.keys, 0, upper.size);
+            System.arraycopy(elements, half, upper.elements, 0, upper.size);
+            Arrays.fill(keys, half, size, null);
+            Arrays.fill(elements, half, size, null);
+            size = half;
+            return upper;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package server.indexes;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the roaring bitmap format. Values are split by their
+ * high 16 bits into containers; a container with few values is a sorted array of the low 16 bits,
+ * a dense container is a bitset of 65536 bits. Union and intersection work container by container.
+ * The bitmap is not thread safe.
+ */
+public class RoaringBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+    private char[] highs;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this(4);
+    }
+
+    private RoaringBitmap(int capacity) {
+        highs = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    /**
+     * @param value non-negative value
+     */
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int position = search(high);
+        if (position >= 0) containers[position] = containers[position].add((char) value);
+        else {
+            ArrayContainer container = new ArrayContainer(4);
+            container.add((char) value);
+            insert(-position - 1, high, container);
+        }
+    }
+
+    public void remove(int value) {
+        int position = search((char) (value >>> 16));
+        if (position < 0) return;
+        Container container = containers[position].remove((char) value);
+        if (container.cardinality() == 0) delete(position);
+        else containers[position] = container;
+    }
+
+    public boolean contains(int value) {
+        int position = search((char) (value >>> 16));
+        return position >= 0 && containers[position].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Pass the values to the action in ascending order
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) containers[i].forEach(highs[i] << 16, action);
+    }
+
+    /**
+     * @return new bitmap with the values of both bitmaps
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(Math.max(1, size + other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && highs[i] < other.highs[j])) {
+                result.append(highs[i], containers[i].copy());
+                i++;
+            } else if (i == size || other.highs[j] < highs[i]) {
+                result.append(other.highs[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(highs[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return new bitmap with the values, which are in both bitmaps
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(Math.max(1, Math.min(size, other.size)));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (highs[i] < other.highs[j]) i++;
+            else if (other.highs[j] < highs[i]) j++;
+            else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) result.append(highs[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private int search(char high) {
+        int low = 0;
+        int top = size - 1;
+        while (low <= top) {
+            int middle = (low + top) >>> 1;
+            if (highs[middle] < high) low = middle + 1;
+            else if (highs[middle] > high) top = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int position, char high, Container container) {
+        if (size == highs.length) {
+            highs = Arrays.copyOf(highs, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(highs, position, highs, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        highs[position] = high;
+        containers[position] = container;
+        size++;
+    }
+
+    private void append(char high, Container container) {
+        insert(size, high, container);
+    }
+
+    private void delete(int position) {
+        System.arraycopy(highs, position + 1, highs, position, size - position - 1);
+        System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Low 16 bits of the values with the same high 16 bits.
+     * Changing operations return the container to use afterwards, it may be of the other kind.
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract Container or(Container other);
+
+        abstract Container and(Container other);
+
+        abstract Container copy();
+    }
+
+    /**
+     * Sorted array of at most ARRAY_LIMIT values
+     */
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int cardinality;
+
+        ArrayContainer(int capacity) {
+            values = new char[capacity];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if (position >= 0) return this;
+            if (cardinality == ARRAY_LIMIT) return toBitmap().add(value);
+            position = -position - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if (position < 0) return this;
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) action.accept(high | values[i]);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) merged[count++] = values[i++];
+                else if (array.values[j] < values[i]) merged[count++] = array.values[j++];
+                else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) merged[count++] = values[i++];
+            while (j < array.cardinality) merged[count++] = array.values[j++];
+            ArrayContainer result = new ArrayContainer(merged, count);
+            return count > ARRAY_LIMIT ? result.toBitmap() : result;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] common = new char[cardinality];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++)
+                    if (other.contains(values[i])) common[count++] = values[i];
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) i++;
+                    else if (array.values[j] < values[i]) j++;
+                    else {
+                        common[count++] = values[i++];
+                        j++;
+                    }
+                }
+            }
+            return new ArrayContainer(common, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) bitmap.add(values[i]);
+            return bitmap;
+        }
+    }
+
+    /**
+     * Bitset of all 65536 low values
+     */
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[BITMAP_WORDS];
+        int cardinality;
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality < ARRAY_LIMIT) return toArray();
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    action.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int cardinality = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result.words[i] |= otherWords[i];
+                    cardinality += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = cardinality;
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) result.add(array.values[i]);
+            }
+            return result;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+            long[] otherWords = ((BitmapContainer) other).words;
+            BitmapContainer result = new BitmapContainer();
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] = words[i] & otherWords[i];
+                cardinality += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = cardinality;
+            return cardinality < ARRAY_LIMIT ? result.toArray() : result;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer(Math.max(1, cardinality));
+            forEach(0, value -> array.values[array.cardinality++] = (char) value);
+            return array;
+        }
+    }
+}
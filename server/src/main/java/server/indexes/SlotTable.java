@@ -0,0 +1,82 @@
+package server.indexes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense int numbers (slots) of the elements, which the bitmap indexes are built on.
+ * Slots of removed elements are given to the next added ones, so the bitmaps stay small.
+ * The table is not thread safe.
+ * @param <V> type of elements
+ */
+public class SlotTable<V> {
+    private final Map<String, Integer> slots;
+    private String[] keys;
+    private Object[] elements;
+    private int[] free = new int[16];
+    private int freeCount;
+    private int used;
+
+    public SlotTable() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize expected number of elements
+     */
+    public SlotTable(int expectedSize) {
+        slots = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+        keys = new String[Math.max(16, expectedSize)];
+        elements = new Object[keys.length];
+    }
+
+    /**
+     * Give a slot to the element or replace the element in the slot of its key
+     * @return slot of the element
+     */
+    public int put(String key, V element) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = freeCount > 0 ? free[--freeCount] : used++;
+            if (slot == keys.length) {
+                keys = Arrays.copyOf(keys, slot * 2);
+                elements = Arrays.copyOf(elements, slot * 2);
+            }
+            slots.put(key, slot);
+            keys[slot] = key;
+        }
+        elements[slot] = element;
+        return slot;
+    }
+
+    /**
+     * @return slot, which the element had, or -1 if there is no such key
+     */
+    public int remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) return -1;
+        keys[slot] = null;
+        elements[slot] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = slot;
+        return slot;
+    }
+
+    public String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V elementAt(int slot) {
+        return (V) elements[slot];
+    }
+
+    public void clear() {
+        slots.clear();
+        Arrays.fill(keys, 0, used, null);
+        Arrays.fill(elements, 0, used, null);
+        freeCount = 0;
+        used = 0;
+    }
+}
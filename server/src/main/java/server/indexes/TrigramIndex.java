@@ -0,0 +1,89 @@
+package server.indexes;
+
+import server.customCollection.CustomLongHashMap;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Inverted index of names by their trigrams (three successive chars of the lower case name).
+ * Every element, which name contains a string, has all trigrams of that string,
+ * so only the elements of the shortest posting list of those trigrams have to be checked.
+ * A trigram is packed into a long, the index is not thread safe.
+ */
+public class TrigramIndex {
+    /**
+     * Length of a trigram, shorter strings can not be searched in the index
+     */
+    public static final int GRAM = 3;
+    private final CustomLongHashMap<Set<String>> postings;
+
+    public TrigramIndex() {
+        this(16);
+    }
+
+    /**
+     * @param expectedTrigrams expected number of different trigrams
+     */
+    public TrigramIndex(int expectedTrigrams) {
+        postings = new CustomLongHashMap<>(expectedTrigrams);
+    }
+
+    /**
+     * Add element to the index
+     * @param key key of element in the collection
+     * @param name name of element
+     */
+    public void add(String key, String name) {
+        String lowerName = name.toLowerCase();
+        for (int i = 0; i + GRAM <= lowerName.length(); i++) {
+            long trigram = trigram(lowerName, i);
+            Set<String> keys = postings.get(trigram);
+            if (keys == null) {
+                keys = new HashSet<>(4);
+                postings.put(trigram, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Remove element from the index
+     * @param key key of element in the collection
+     * @param name name of element, which it was added with
+     */
+    public void remove(String key, String name) {
+        String lowerName = name.toLowerCase();
+        for (int i = 0; i + GRAM <= lowerName.length(); i++) {
+            long trigram = trigram(lowerName, i);
+            Set<String> keys = postings.get(trigram);
+            if (keys == null) continue;
+            keys.remove(key);
+            if (keys.isEmpty()) postings.remove(trigram);
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * @param query lower case string to search in names, not shorter than GRAM
+     * @return keys of elements, which names may contain the query
+     */
+    public Set<String> candidates(String query) {
+        if (query.length() < GRAM) throw new IllegalArgumentException("Запрос короче триграммы");
+        Set<String> shortest = null;
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Set<String> keys = postings.get(trigram(query, i));
+            if (keys == null) return Collections.emptySet();
+            if (shortest == null || keys.size() < shortest.size()) shortest = keys;
+        }
+        return Collections.unmodifiableSet(shortest);
+    }
+
+    private static long trigram(String string, int from) {
+        return ((long) string.charAt(from) << 32) | ((long) string.charAt(from + 1) << 16) | string.charAt(from + 2);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Package, which contains secondary indexes over the elements of the collection;
+ */
+package server.indexes;
@@ -0,0 +1,78 @@
+package server.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the collection in the background. The collection is checked every second and saved
+ * when enough elements have changed or the interval has passed since the first unsaved change.
+ * All checkpoints, scheduled and requested, run one after another on one thread.
+ */
+public class CheckpointScheduler {
+    private static final long CHECK_PERIOD_MILLIS = 1000;
+    private final CollectionManager collectionManager;
+    private final long intervalMillis;
+    private final long dirtyThreshold;
+    private final ScheduledExecutorService executor;
+    private long cleanSince = System.currentTimeMillis();
+    public final Logger LOG
+            = LoggerFactory.getLogger(CheckpointScheduler.class);
+
+    /**
+     * Constructor
+     * @param collectionManager Collection manager
+     * @param intervalMillis Longest time changes stay unsaved, 0 - save only by threshold and on request
+     * @param dirtyThreshold Number of changed elements, which starts a checkpoint at once, 0 - no threshold
+     */
+    public CheckpointScheduler(CollectionManager collectionManager, long intervalMillis, long dirtyThreshold) {
+        this.collectionManager = collectionManager;
+        this.intervalMillis = intervalMillis;
+        this.dirtyThreshold = dirtyThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "server-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::tick, CHECK_PERIOD_MILLIS, CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start checkpoint in the background
+     * @return Future, which is done when the checkpoint is written
+     */
+    public Future<?> checkpointNow() {
+        return executor.submit(this::checkpoint);
+    }
+
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        long dirty = collectionManager.getDirtyEntries();
+        if (dirty == 0) {
+            cleanSince = now;
+            return;
+        }
+        if ((dirtyThreshold > 0 && dirty >= dirtyThreshold) || (intervalMillis > 0 && now - cleanSince >= intervalMillis))
+            checkpoint();
+    }
+
+    private void checkpoint() {
+        try {
+            collectionManager.checkpoint();
+        } catch (RuntimeException err) {
+            LOG.error("Ошибка при сохранении коллекции!");
+        }
+        cleanSince = System.currentTimeMillis();
+    }
+}
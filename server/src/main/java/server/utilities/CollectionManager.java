@@ -5,7 +5,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import server.AppServer;
 import server.commands.ICommand;
+import common.datas.Country;
 import common.datas.FormOfEducation;
+import common.datas.Semester;
 import common.datas.StudyGroup;
 import de.vandermeer.asciitable.AsciiTable;
 import de.vandermeer.asciitable.CWC_LongestLine;
@@ -14,16 +16,62 @@ import common.exceptions.IncorrectInputScriptException;
 import java.io.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import server.customCollection.*;
+import server.indexes.EnumBitmapIndex;
+import server.indexes.LongRangeIndex;
+import server.indexes.RoaringBitmap;
+import server.indexes.SlotTable;
+import server.indexes.TrigramIndex;
 /**
- * Receiver class
+ * Receiver class. Commands, which only read the collection, run in parallel,
+ * commands, which change it, run one at a time. With the skip list or the persistent
+ * tree collection commands, which read only the collection itself, do not wait for the changes at all.
  */
 
 public class CollectionManager {
     private final CommandManager commandManager;
     private final FileManager fileManager;
-    protected static CustomTreeMap<String, StudyGroup> studyGroupCollection = new CustomTreeMap<>();
+    private final WriteAheadLog writeAheadLog;
+    private final Object checkpointLock = new Object();
+    private CheckpointScheduler checkpointScheduler;
+    private ForkJoinPool filterPool = ForkJoinPool.commonPool();
+    private final AtomicLong dirtyEntries = new AtomicLong();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private final Lock collectionReadLock;
+    private static final int SHOW_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final int PARALLEL_FILTER_SIZE = 8192;
+    private static final Pattern ENUM_CONDITION = Pattern.compile("(\\w+)\\s*(!=|=|>|<)\\s*(.+)");
+    private final String collectionType;
+    private final boolean concurrentCollection;
+    protected static NavigableMap<String, StudyGroup> studyGroupCollection = new CustomTreeMap<>();
+    /**
+     * Persistent copy of a mutable collection, changed together with it, so a checkpoint takes its
+     * snapshot instead of copying the collection under the lock. Null if the collection is persistent itself.
+     */
+    private static CustomPersistentTreeMap<String, StudyGroup> persistentCopy;
+    private static CustomLongHashMap<String> idIndex = new CustomLongHashMap<>();
+    private static NavigableMap<NameKey, StudyGroup> nameIndex = new CustomTreeMap<>();
+    private static TrigramIndex nameTrigrams = new TrigramIndex();
+    private static LongRangeIndex<StudyGroup> transferredStudentsIndex = new LongRangeIndex<>();
+    private static SlotTable<StudyGroup> slots = new SlotTable<>();
+    private static final EnumBitmapIndex<FormOfEducation> formOfEducationIndex = new EnumBitmapIndex<>(FormOfEducation.class);
+    private static final EnumBitmapIndex<Semester> semesterIndex = new EnumBitmapIndex<>(Semester.class);
+    private static final EnumBitmapIndex<Country> countryIndex = new EnumBitmapIndex<>(Country.class);
 
     private static Long lastId = 1L;
     //private final QueryManager queryManager;
@@ -38,8 +86,35 @@ public class CollectionManager {
      * @throws IOException On input error
      */
     public CollectionManager(CommandManager commandManager,FileManager fileManager)throws IOException {
+        this(commandManager, fileManager, null);
+    }
+
+    /**
+     * Constructor
+     * @param commandManager Command manager
+     * @param fileManager Fil manager
+     * @param writeAheadLog Log of changes since the last save, or null
+     * @throws IOException On input error
+     */
+    public CollectionManager(CommandManager commandManager,FileManager fileManager,WriteAheadLog writeAheadLog)throws IOException {
+        this(commandManager, fileManager, writeAheadLog, "tree");
+    }
+
+    /**
+     * Constructor
+     * @param commandManager Command manager
+     * @param fileManager Fil manager
+     * @param writeAheadLog Log of changes since the last save, or null
+     * @param collectionType "tree" - CustomTreeMap, "skiplist" - CustomSkipListMap, "persistent" - CustomPersistentTreeMap
+     * @throws IOException On input error
+     */
+    public CollectionManager(CommandManager commandManager,FileManager fileManager,WriteAheadLog writeAheadLog,String collectionType)throws IOException {
         this.fileManager = fileManager;
         this.commandManager = commandManager;
+        this.writeAheadLog = writeAheadLog;
+        this.collectionType = collectionType;
+        this.concurrentCollection = !collectionType.equals("tree");
+        this.collectionReadLock = concurrentCollection ? new NoLock() : readLock;
         loadCollectionFromCsv();
     }
 
@@ -47,9 +122,146 @@ public class CollectionManager {
      * Load collection from CSV file.
      */
     public void loadCollectionFromCsv() throws IOException {
-        studyGroupCollection = fileManager.readCollection();
+        writeLock.lock();
+        try{
+            loadCollection();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void loadCollection() throws IOException {
+        CustomTreeMap<String, StudyGroup> collection = fileManager.readCollection();
         lastId = fileManager.getLastId();
+        if(writeAheadLog != null){
+            int applied = writeAheadLog.recover(collection);
+            if(applied > 0){
+                lastId = Math.max(lastId, writeAheadLog.getMaxReplayedId());
+                LOG.info("Восстановлено из журнала изменений: " + applied);
+            }
+        }
+        if(collectionType.equals("skiplist")) studyGroupCollection = new CustomSkipListMap<>(collection);
+        else if(collectionType.equals("persistent")) studyGroupCollection = new CustomPersistentTreeMap<>(collection);
+        else studyGroupCollection = new CustomOrderStatisticTreeMap<>(collection);
+        persistentCopy = studyGroupCollection instanceof CustomPersistentTreeMap ? null : new CustomPersistentTreeMap<>(collection);
         initData = LocalDate.now();
+        rebuildIndexes();
+    }
+
+    /**
+     * Rebuild secondary indexes from the whole collection.
+     * The name index is a skip list, if the collection is read without the lock.
+     */
+    private void rebuildIndexes(){
+        idIndex = new CustomLongHashMap<>(studyGroupCollection.size());
+        nameTrigrams = new TrigramIndex(studyGroupCollection.size());
+        transferredStudentsIndex = new LongRangeIndex<>();
+        slots = new SlotTable<>(studyGroupCollection.size());
+        formOfEducationIndex.clear();
+        semesterIndex.clear();
+        countryIndex.clear();
+        List<Map.Entry<NameKey, StudyGroup>> byName = new ArrayList<>(studyGroupCollection.size());
+        studyGroupCollection.forEach((key, studyGroup) -> {
+            idIndex.put(studyGroup.getId(), key);
+            nameTrigrams.add(key, studyGroup.getName());
+            addToEnumIndexes(slots.put(key, studyGroup), studyGroup);
+            byName.add(new CustomAbstractMap.SimpleImmutableEntry<>(new NameKey(studyGroup.getName(), key), studyGroup));
+        });
+        byName.sort(Map.Entry.comparingByKey());
+        CustomTreeMap<NameKey, StudyGroup> sortedByName = new CustomTreeMap<>();
+        sortedByName.buildFromSorted(byName.size(), byName.iterator());
+        nameIndex = concurrentCollection ? new CustomSkipListMap<>(sortedByName) : sortedByName;
+        List<Map.Entry<String, StudyGroup>> byTransferredStudents = new ArrayList<>(studyGroupCollection.entrySet());
+        byTransferredStudents.sort(Comparator.<Map.Entry<String, StudyGroup>>comparingLong(entry -> entry.getValue().getTransferredStudents())
+                .thenComparing(Map.Entry::getKey));
+        byTransferredStudents.forEach(entry -> transferredStudentsIndex.add(entry.getValue().getTransferredStudents(), entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Put element into collection and indexes
+     * @param key key of TreeMap
+     * @param studyGroup new element
+     */
+    private void putStudyGroup(String key, StudyGroup studyGroup){
+        indexStudyGroup(key, studyGroupCollection.put(key, studyGroup), studyGroup);
+    }
+
+    /**
+     * Update indexes and the log after the element has been stored in the collection
+     * @param key key of TreeMap
+     * @param previous element, which was stored with the key before, or null
+     * @param studyGroup new element
+     */
+    private void indexStudyGroup(String key, StudyGroup previous, StudyGroup studyGroup){
+        if(previous != null){
+            idIndex.remove(previous.getId());
+            nameIndex.remove(new NameKey(previous.getName(), key));
+            nameTrigrams.remove(key, previous.getName());
+            transferredStudentsIndex.remove(previous.getTransferredStudents(), key);
+            removeFromEnumIndexes(slots.remove(key), previous);
+        }
+        idIndex.put(studyGroup.getId(), key);
+        nameIndex.put(new NameKey(studyGroup.getName(), key), studyGroup);
+        nameTrigrams.add(key, studyGroup.getName());
+        transferredStudentsIndex.add(studyGroup.getTransferredStudents(), key, studyGroup);
+        addToEnumIndexes(slots.put(key, studyGroup), studyGroup);
+        if(persistentCopy != null) persistentCopy.put(key, studyGroup);
+        addDirtyEntries(1);
+        if(writeAheadLog != null) writeAheadLog.logPut(key, studyGroup);
+    }
+
+    /**
+     * Remove element from collection and indexes
+     * @param key key of TreeMap
+     * @return removed element or null
+     */
+    private StudyGroup removeStudyGroup(String key){
+        StudyGroup removed = studyGroupCollection.remove(key);
+        if(removed != null){
+            idIndex.remove(removed.getId());
+            nameIndex.remove(new NameKey(removed.getName(), key));
+            nameTrigrams.remove(key, removed.getName());
+            transferredStudentsIndex.remove(removed.getTransferredStudents(), key);
+            removeFromEnumIndexes(slots.remove(key), removed);
+            if(persistentCopy != null) persistentCopy.remove(key);
+            addDirtyEntries(1);
+            if(writeAheadLog != null) writeAheadLog.logRemove(key);
+        }
+        return removed;
+    }
+
+    private static void addToEnumIndexes(int slot, StudyGroup studyGroup){
+        formOfEducationIndex.add(slot, studyGroup.getFormOfEducation());
+        semesterIndex.add(slot, studyGroup.getSemesterEnum());
+        countryIndex.add(slot, countryOf(studyGroup));
+    }
+
+    private static void removeFromEnumIndexes(int slot, StudyGroup studyGroup){
+        formOfEducationIndex.remove(slot, studyGroup.getFormOfEducation());
+        semesterIndex.remove(slot, studyGroup.getSemesterEnum());
+        countryIndex.remove(slot, countryOf(studyGroup));
+    }
+
+    private static Country countryOf(StudyGroup studyGroup){
+        return studyGroup.getGroupAdmin() == null ? null : studyGroup.getGroupAdmin().getCountry();
+    }
+
+    /**
+     * Clear collection and indexes
+     */
+    private void clearStudyGroups(){
+        addDirtyEntries(studyGroupCollection.size());
+        studyGroupCollection.clear();
+        idIndex.clear();
+        nameIndex.clear();
+        nameTrigrams.clear();
+        transferredStudentsIndex.clear();
+        slots.clear();
+        formOfEducationIndex.clear();
+        semesterIndex.clear();
+        countryIndex.clear();
+        if(persistentCopy != null) persistentCopy.clear();
+        if(writeAheadLog != null) writeAheadLog.logClear();
     }
 
     /**
@@ -62,12 +274,14 @@ public class CollectionManager {
     /**
      *
      * @param arg key of TreeMap
+     * @param responseOutputer Output of the request
      */
-    public void insert(String arg, StudyGroupRaw studyGroupRaw) {
-        try {
-            if(!studyGroupCollection.containsKey(arg)){
-                studyGroupCollection.put(arg,
-                        new StudyGroup(getLastId()+1L,
+    public void insert(String arg, StudyGroupRaw studyGroupRaw, ResponseOutputer responseOutputer) {
+        writeLock.lock();
+        try{
+            try {
+                StudyGroup studyGroup =
+                        new StudyGroup(getLastId()+1,
                                 studyGroupRaw.getName(),
                                 studyGroupRaw.getCoordinates(),
                                 LocalDate.now(),
@@ -75,69 +289,226 @@ public class CollectionManager {
                                 studyGroupRaw.getTransferredStudents(),
                                 studyGroupRaw.getFormOfEducation(),
                                 studyGroupRaw.getSemesterEnum(),
-                                studyGroupRaw.getGroupAdmin())
-                        );
-                ResponseOutputer.append("Успешно добавлено Study Group!");
-                LOG.info("Успешно добавлено Study Group!");
+                                studyGroupRaw.getGroupAdmin());
+                if(studyGroupCollection.putIfAbsent(arg, studyGroup) == null){
+                    lastId++;
+                    indexStudyGroup(arg, null, studyGroup);
+                    responseOutputer.append("Успешно добавлено Study Group!");
+                    LOG.info("Успешно добавлено Study Group!");
+                }
+                else {
+                    responseOutputer.append("Ключ не может перекрываться");
+                    LOG.error("Ключ не может перекрываться");
+                }
             }
-            else {
-                ResponseOutputer.append("Ключ не может перекрываться");
-                LOG.error("Ключ не может перекрываться");
+            catch(IncorrectInputScriptException err){
+                throw new IncorrectInputScriptException();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Print collection in the order of names, page by page. Every page is copied under the read lock
+     * and printed after it is released, so changes made meanwhile may be seen in the later pages.
+     */
+    public void show(ResponseOutputer responseOutputer) {
+        List<Map.Entry<NameKey, StudyGroup>> page = readPage(nameIndex, null, true, 0, SHOW_PAGE_SIZE);
+        printRows(byKey(page), responseOutputer);
+        while(page.size() == SHOW_PAGE_SIZE && !responseOutputer.isBroken()){
+            page = readPage(nameIndex, page.get(page.size() - 1).getKey(), false, 0, SHOW_PAGE_SIZE);
+            if(!page.isEmpty()) printRows(byKey(page), responseOutputer);
+        }
+    }
+
+    /**
+     * Print one page of the collection in key order
+     * @param offsetArg number of elements before the page
+     * @param limitArg number of elements on the page
+     */
+    public void show_page(String offsetArg, String limitArg, ResponseOutputer responseOutputer){
+        try{
+            long offset = Long.parseLong(offsetArg);
+            int limit = parseLimit(limitArg);
+            if(offset < 0) throw new NumberFormatException();
+            List<Map.Entry<String, StudyGroup>> page;
+            boolean hasNextPage;
+            if(studyGroupCollection instanceof CustomOrderStatisticTreeMap){
+                CustomOrderStatisticTreeMap<String, StudyGroup> map = (CustomOrderStatisticTreeMap<String, StudyGroup>) studyGroupCollection;
+                // the first element is found by its position, without walking the elements before it
+                collectionReadLock.lock();
+                try{
+                    page = map.entriesFrom((int) Math.min(offset, Integer.MAX_VALUE), limit);
+                    hasNextPage = limit < map.size() - offset;
+                } finally {
+                    collectionReadLock.unlock();
+                }
+            }
+            else{
+                page = readPage(studyGroupCollection, null, true, offset, limit + 1);
+                hasNextPage = page.size() > limit;
             }
+            printPage(page, limit, responseOutputer);
+            // offset + limit is less than the size here, so it does not overflow
+            if(hasNextPage)
+                responseOutputer.append("Следующая страница: show_page " + (offset + limit) + " " + limit);
+        }catch(NumberFormatException err){
+            responseOutputer.append("Смещение должно быть неотрицательным числом, размер страницы - от 1 до " + MAX_PAGE_SIZE);
+            LOG.error("Некорректные параметры страницы");
         }
-        catch(IncorrectInputScriptException err){
-            throw new IncorrectInputScriptException();
+    }
+
+    /**
+     * Print one page of the collection with keys after the given key
+     * @param key last key of the previous page
+     * @param limitArg number of elements on the page
+     */
+    public void show_after(String key, String limitArg, ResponseOutputer responseOutputer){
+        try{
+            int limit = parseLimit(limitArg);
+            List<Map.Entry<String, StudyGroup>> page = readPage(studyGroupCollection, key, false, 0, limit + 1);
+            printPage(page, limit, responseOutputer);
+            if(page.size() > limit)
+                responseOutputer.append("Следующая страница: show_after " + page.get(limit - 1).getKey() + " " + limit);
+        }catch(NumberFormatException err){
+            responseOutputer.append("Размер страницы должен быть числом от 1 до " + MAX_PAGE_SIZE);
+            LOG.error("Некорректные параметры страницы");
+        }
+    }
+
+    private static int parseLimit(String limitArg){
+        int limit = Integer.parseInt(limitArg);
+        if(limit <= 0 || limit > MAX_PAGE_SIZE) throw new NumberFormatException();
+        return limit;
+    }
+
+    private void printPage(List<Map.Entry<String, StudyGroup>> page, int limit, ResponseOutputer responseOutputer){
+        printRows(page.size() > limit ? page.subList(0, limit) : page, responseOutputer);
+    }
+
+    /**
+     * Copy part of the collection or of the name index under the read lock
+     * @param fromKey key to start from, null - from the first key
+     * @param inclusive whether the page may start with fromKey itself
+     * @param skip number of elements to skip first
+     * @param limit maximal number of elements
+     * @return elements in key order
+     */
+    private <K> List<Map.Entry<K, StudyGroup>> readPage(NavigableMap<K, StudyGroup> map, K fromKey, boolean inclusive, long skip, int limit){
+        List<Map.Entry<K, StudyGroup>> page = new ArrayList<>(Math.min(limit, SHOW_PAGE_SIZE));
+        collectionReadLock.lock();
+        try{
+            NavigableMap<K, StudyGroup> tail = fromKey == null ? map : map.tailMap(fromKey, inclusive);
+            Iterator<Map.Entry<K, StudyGroup>> iterator = tail.entrySet().iterator();
+            for(long skipped = 0; skipped < skip && iterator.hasNext(); skipped++) iterator.next();
+            while(page.size() < limit && iterator.hasNext())
+                page.add(new CustomAbstractMap.SimpleImmutableEntry<>(iterator.next()));
+        } finally {
+            collectionReadLock.unlock();
         }
+        return page;
     }
 
     /**
-     * Print collection
+     * @return elements of the name index page with their collection keys
      */
-    public void show() {
-        printCollection(studyGroupCollection);
+    private static List<Map.Entry<String, StudyGroup>> byKey(List<Map.Entry<NameKey, StudyGroup>> page){
+        List<Map.Entry<String, StudyGroup>> rows = new ArrayList<>(page.size());
+        for(Map.Entry<NameKey, StudyGroup> entry : page)
+            rows.add(new CustomAbstractMap.SimpleImmutableEntry<>(entry.getKey().key, entry.getValue()));
+        return rows;
+    }
+
+    /**
+     * Print elements matching the filter in the order of names. They are collected under the read lock
+     * and printed after it is released.
+     */
+    private void printFiltered(Predicate<StudyGroup> filter, ResponseOutputer responseOutputer){
+        List<Map.Entry<String, StudyGroup>> rows;
+        collectionReadLock.lock();
+        try{
+            rows = collectFiltered(nameIndex.entrySet().stream()
+                    .filter(entry -> filter.test(entry.getValue()))
+                    .map(entry -> new CustomAbstractMap.SimpleImmutableEntry<>(entry.getKey().key, entry.getValue())),
+                    nameIndex.size());
+        } finally {
+            collectionReadLock.unlock();
+        }
+        printFound(rows, responseOutputer);
+    }
+
+    /**
+     * Collect the stream in its order. A stream over many elements runs in parallel on the filter pool;
+     * the calling thread holds the lock for the pool threads, since it waits for them.
+     * @param sourceSize number of elements in the source of the stream
+     */
+    private <T> List<T> collectFiltered(Stream<T> rows, int sourceSize){
+        if(sourceSize < PARALLEL_FILTER_SIZE || filterPool.getParallelism() == 1) return rows.collect(Collectors.toList());
+        Stream<T> parallelRows = rows.parallel();
+        return filterPool.submit(() -> parallelRows.collect(Collectors.toList())).join();
+    }
+
+    private void printFound(List<Map.Entry<String, StudyGroup>> rows, ResponseOutputer responseOutputer){
+        if(!rows.isEmpty()) printRows(rows, responseOutputer);
+        else {
+            responseOutputer.append("Нет таких элементов!");
+            LOG.error("Нет таких элементов!");
+        }
     }
 //
     /**
      * Print all server.commands with description
      */
-    public void help() {
+    public void help(ResponseOutputer responseOutputer) {
         for (Map.Entry<String, ICommand> entry : commandManager.getCommands().entrySet()) {
             String key = entry.getKey();
             ICommand value = entry.getValue();
-            ResponseOutputer.append(value.getDescription());
+            responseOutputer.append(value.getDescription());
         }
     }
 
     /**
      * Clear collection
      */
-    public void clear(){
-        studyGroupCollection.clear();
-        ResponseOutputer.append("Успешно очистили коллекцию!");
-        LOG.info("Успешно очистили коллекцию!");
+    public void clear(ResponseOutputer responseOutputer){
+        writeLock.lock();
+        try{
+            clearStudyGroups();
+            responseOutputer.append("Успешно очистили коллекцию!");
+            LOG.info("Успешно очистили коллекцию!");
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     /**
      * Print information of collection
      */
-    public void info(){
-        ResponseOutputer.append("Тип коллекции: " + studyGroupCollection.getClass().getName());
-        ResponseOutputer.append("Дата инициализации: " + initData);
-        ResponseOutputer.append("Количество элементов: " + studyGroupCollection.size());
+    public void info(ResponseOutputer responseOutputer){
+        collectionReadLock.lock();
+        try{
+            responseOutputer.append("Тип коллекции: " + studyGroupCollection.getClass().getName());
+            responseOutputer.append("Дата инициализации: " + initData);
+            responseOutputer.append("Количество элементов: " + studyGroupCollection.size());
+        } finally {
+            collectionReadLock.unlock();
+        }
     }
 
     /**
      * Update collection with key
      * @param arg id of StudyGroup
      */
-    public void update(String arg,StudyGroupRaw studyGroupRaw){
+    public void update(String arg,StudyGroupRaw studyGroupRaw,ResponseOutputer responseOutputer){
+        writeLock.lock();
         try{
-            final Long id = Long.parseLong(arg);
-            boolean updated = false;
+            try{
+                final long id = Long.parseLong(arg);
+                String key = idIndex.get(id);
 
-            for(Map.Entry<String, StudyGroup> studyGroup : studyGroupCollection.entrySet()){
-                if(studyGroup.getValue().getId().equals(id)){
-                    studyGroupCollection.replace(studyGroup.getKey(),
+                if(key != null) {
+                    putStudyGroup(key,
                             new StudyGroup(
                                     id,
                                     studyGroupRaw.getName(),
@@ -150,169 +521,442 @@ public class CollectionManager {
                                     studyGroupRaw.getGroupAdmin()
                                 )
                             );
-                    updated = true;
+                    responseOutputer.append("Успешно обновлено!");
+                    LOG.info("Успешно обновлено!");
+                }
+                else {
+                    responseOutputer.append("Не удалось обновить. Нет такого id!");
+                    LOG.error("Не удалось обновить. Нет такого id!");
                 }
+
+            }
+            catch(NumberFormatException err){
+                responseOutputer.append("id должно быть цифром!");
+                LOG.error("id должно быть цифром!");
             }
-            if(updated) {
-                ResponseOutputer.append("Успешно обновлено!");
-                LOG.info("Успешно обновлено!");
+    
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove element of collection with key
+     * @param arg key of TreeMap
+     */
+    public void remove(String arg,ResponseOutputer responseOutputer){
+        writeLock.lock();
+        try{
+            if(removeStudyGroup(arg) == null) {
+                responseOutputer.append("Не удалось удалить. Нет такого ключа.");
+                LOG.error("Не удалось удалить. Нет такого ключа.");
             }
+
             else {
-                LOG.error("Не удалось обновить. Нет такого id!");
+                responseOutputer.append("Успешно удалено!");
+                LOG.info("Успешно удалено!");
             }
+    
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
+    /**
+     * Print element of collection with id
+     * @param arg id of StudyGroup
+     */
+    public void get_by_id(String arg,ResponseOutputer responseOutputer){
+        readLock.lock();
+        try{
+            try{
+                String key = idIndex.get(Long.parseLong(arg));
+                if(key != null) printRows(Collections.singletonList(new CustomAbstractMap.SimpleImmutableEntry<>(key, studyGroupCollection.get(key))), responseOutputer);
+                else {
+                    responseOutputer.append("Нет такого id!");
+                    LOG.error("Нет такого id!");
+                }
+            }
+            catch(NumberFormatException err){
+                responseOutputer.append("id должно быть цифром!");
+                LOG.error("id должно быть цифром!");
+            }
+        } finally {
+            readLock.unlock();
         }
-        catch(NumberFormatException err){
-            ResponseOutputer.append("id должно быть цифром!");
-            LOG.error("id должно быть цифром!");
+    }
+
+    /**
+     * Remove element of collection with id
+     * @param arg id of StudyGroup
+     */
+    public void remove_by_id(String arg,ResponseOutputer responseOutputer){
+        writeLock.lock();
+        try{
+            try{
+                String key = idIndex.get(Long.parseLong(arg));
+                if(key != null && removeStudyGroup(key) != null) {
+                    responseOutputer.append("Успешно удалено!");
+                    LOG.info("Успешно удалено!");
+                }
+                else {
+                    responseOutputer.append("Не удалось удалить. Нет такого id!");
+                    LOG.error("Не удалось удалить. Нет такого id!");
+                }
+            }
+            catch(NumberFormatException err){
+                responseOutputer.append("id должно быть цифром!");
+                LOG.error("id должно быть цифром!");
+            }
+        } finally {
+            writeLock.unlock();
         }
+    }
 
+    /**
+     * Save collection to file, in the background if there is a checkpoint scheduler
+     */
+    public void save(){
+        if(checkpointScheduler != null) checkpointScheduler.checkpointNow();
+        else checkpoint();
     }
 
     /**
-     * Remove element of collection with key
-     * @param arg key of TreeMap
+     * Save copy of the collection to file. Changes are blocked only while the snapshot is taken,
+     * log segments, which are covered by the saved file, are deleted afterwards.
+     * @return true if the collection was written
      */
-    public void remove(String arg){
-        if(studyGroupCollection.remove(arg) == null) {
-            ResponseOutputer.append("Не удалось удалить. Нет такого ключа.");
-            LOG.error("Не удалось удалить. Нет такого ключа.");
+    public boolean checkpoint(){
+        synchronized (checkpointLock){
+            long firstKept = 0;
+            if(writeAheadLog != null){
+                try{
+                    firstKept = writeAheadLog.rotate();
+                }catch(IOException err){
+                    LOG.error("Не удалось записать журнал изменений!");
+                    return false;
+                }
+            }
+            SortedMap<String, StudyGroup> collection;
+            long collectionLastId;
+            long dirty;
+            readLock.lock();
+            try{
+                collection = copyCollection();
+                collectionLastId = lastId;
+                dirty = takeDirtyEntries();
+            } finally {
+                readLock.unlock();
+            }
+            if(!fileManager.writeCollection(collection, collectionLastId)){
+                addDirtyEntries(dirty);
+                return false;
+            }
+            if(writeAheadLog != null) writeAheadLog.deleteSegmentsBefore(firstKept);
+            return true;
         }
+    }
 
-        else {
-            ResponseOutputer.append("Успешно удалено!");
-            LOG.info("Успешно удалено!");
+    /**
+     * Copy of the collection, which is written to file. Must be called holding the read lock.
+     * It is a snapshot of the persistent tree, so nothing is copied.
+     */
+    @SuppressWarnings("unchecked")
+    private SortedMap<String, StudyGroup> copyCollection(){
+        if(persistentCopy != null) return persistentCopy.snapshot();
+        return ((CustomPersistentTreeMap<String, StudyGroup>) studyGroupCollection).snapshot();
+    }
+
+    /**
+     * @return number of changes since the last checkpoint
+     */
+    public long getDirtyEntries(){
+        return dirtyEntries.get();
+    }
+
+    private long takeDirtyEntries(){
+        return dirtyEntries.getAndSet(0);
+    }
+
+    private void addDirtyEntries(long dirty){
+        dirtyEntries.addAndGet(dirty);
+    }
+
+    /**
+     * Run action holding the write lock, so that commands it executes see and leave the collection as a whole
+     * @return result of the action
+     */
+    public <T> T callExclusively(Supplier<T> action){
+        writeLock.lock();
+        try{
+            return action.get();
+        } finally {
+            writeLock.unlock();
         }
+    }
 
+    /**
+     * @param filterPool Pool, which runs filters over many elements in parallel, the common pool by default
+     */
+    public void setFilterPool(ForkJoinPool filterPool){
+        this.filterPool = filterPool;
     }
 
     /**
-     * Save collection to file
+     * @param checkpointScheduler Scheduler, which runs save in the background
      */
-    public void save(){
-        fileManager.writeCollection(studyGroupCollection);
+    public void setCheckpointScheduler(CheckpointScheduler checkpointScheduler){
+        this.checkpointScheduler = checkpointScheduler;
+    }
+
+    /**
+     * Wait until changes made by the current request are written to the log
+     * @return false if the log could not be written
+     */
+    public boolean syncLog(){
+        if(writeAheadLog == null) return true;
+        try{
+            writeAheadLog.sync();
+            return true;
+        }catch(IOException err){
+            LOG.error("Не удалось записать журнал изменений!");
+            return false;
+        }
+    }
+
+    /**
+     * Export collection to CSV file
+     */
+    public void exportCsv(){
+        SortedMap<String, StudyGroup> collection;
+        readLock.lock();
+        try{
+            collection = copyCollection();
+        } finally {
+            readLock.unlock();
+        }
+        fileManager.exportCsv(collection);
     }
 
     /**
      * Exit program without saving
      */
-    public void exit(){
-        ResponseOutputer.append("До свидания!");
+    public void exit(ResponseOutputer responseOutputer){
+        responseOutputer.append("До свидания!");
     }
 
     /**
      * Execute command from file
      * @param arg script name
      */
-    public void executeScript(String arg){
-        ResponseOutputer.append("");
+    public void executeScript(String arg,ResponseOutputer responseOutputer){
+        responseOutputer.append("");
         LOG.info("Чтение команды из скрипта...");
     }
 
     /**
      * Print last 11 command history
      */
-    public void history(){
+    public void history(ResponseOutputer responseOutputer){
         List<String> commandHistory = commandManager.getCommandHistory();
         for(int i=0;i<commandHistory.size();i++){
-            ResponseOutputer.append(i+1+" " + commandHistory.get(i));
+            responseOutputer.append(i+1+" " + commandHistory.get(i));
         }
     }
 
     /**
-     * Filter by name
+     * Filter by name. Only the elements, which have all trigrams of the argument, are checked;
+     * an argument shorter than a trigram is searched in the whole collection.
      * @param arg Group name
      */
-    public void filter_contains_name(String arg){
+    public void filter_contains_name(String arg,ResponseOutputer responseOutputer){
+        String name = arg.toLowerCase();
+        Predicate<StudyGroup> containsName = studyGroup -> studyGroup.getName().toLowerCase().contains(name);
+        if(name.length() < TrigramIndex.GRAM){
+            printFiltered(containsName, responseOutputer);
+            return;
+        }
+        List<Map.Entry<NameKey, StudyGroup>> found;
+        readLock.lock();
         try{
-            Map<String,StudyGroup> filteredByName = studyGroupCollection.entrySet()
-                    .stream()
-                    .filter(studyGroup -> studyGroup.getValue().getName().toLowerCase().contains(arg.toLowerCase()))
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            if(!filteredByName.isEmpty()) printCollection(filteredByName);
-            else {
-                ResponseOutputer.append("Нет таких элементов!");
-                LOG.error("Нет таких элементов!");
-            }
-        }catch(IllegalArgumentException err){
-            ResponseOutputer.append("Нет таких элементов!");
-            LOG.error("Нет таких элементов!");
+            Set<String> candidates = nameTrigrams.candidates(name);
+            found = collectFiltered(candidates.stream()
+                    .map(key -> new CustomAbstractMap.SimpleImmutableEntry<>(key, studyGroupCollection.get(key)))
+                    .filter(entry -> containsName.test(entry.getValue()))
+                    .map(entry -> new CustomAbstractMap.SimpleImmutableEntry<>(new NameKey(entry.getValue().getName(), entry.getKey()), entry.getValue())),
+                    candidates.size());
+        } finally {
+            readLock.unlock();
         }
+        found.sort(Map.Entry.comparingByKey());
+        printFound(byKey(found), responseOutputer);
     }
 
     /**
      * Filter by transferred students
      * @param arg number of transferred students
      */
-    public void filter_less_than_transferred_students(String arg){
+    public void filter_less_than_transferred_students(String arg,ResponseOutputer responseOutputer){
         try{
-            Map <String,StudyGroup> filteredByTransferredStudents = studyGroupCollection.entrySet()
-                    .stream()
-                    .filter(studyGroup -> Long.parseLong(arg) > studyGroup.getValue().getTransferredStudents())
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            if(!filteredByTransferredStudents.isEmpty()) printCollection(filteredByTransferredStudents);
+            long transferredStudents = Long.parseLong(arg);
+            if(transferredStudents == Long.MIN_VALUE) printFound(Collections.emptyList(), responseOutputer);
+            else printTransferredStudents(Long.MIN_VALUE, transferredStudents - 1, responseOutputer);
+        }catch(NumberFormatException err){
+            responseOutputer.append("Должно быть цифром");
+            LOG.error("Должно быть цифром");
+        }
+    }
 
-            else {
-                ResponseOutputer.append("Нет таких элементов!");
-                LOG.error("Нет таких элементов!");
-            }
-        }catch(IllegalArgumentException err){
-            ResponseOutputer.append("Должно быть цифром");
+    /**
+     * Filter by transferred students
+     * @param arg number of transferred students
+     */
+    public void filter_greater_than_transferred_students(String arg,ResponseOutputer responseOutputer){
+        try{
+            long transferredStudents = Long.parseLong(arg);
+            if(transferredStudents == Long.MAX_VALUE) printFound(Collections.emptyList(), responseOutputer);
+            else printTransferredStudents(transferredStudents + 1, Long.MAX_VALUE, responseOutputer);
+        }catch(NumberFormatException err){
+            responseOutputer.append("Должно быть цифром");
             LOG.error("Должно быть цифром");
         }
     }
 
+    /**
+     * Filter by transferred students, bounds are included
+     * @param fromArg least number of transferred students
+     * @param toArg greatest number of transferred students
+     */
+    public void filter_between_transferred_students(String fromArg,String toArg,ResponseOutputer responseOutputer){
+        try{
+            printTransferredStudents(Long.parseLong(fromArg), Long.parseLong(toArg), responseOutputer);
+        }catch(NumberFormatException err){
+            responseOutputer.append("Должно быть цифром");
+            LOG.error("Должно быть цифром");
+        }
+    }
+
+    /**
+     * Print elements with from &lt;= transferred students &lt;= to sorted by name, like the other filters.
+     * The index is read under the read lock, it is not thread safe.
+     */
+    private void printTransferredStudents(long from, long to, ResponseOutputer responseOutputer){
+        List<Map.Entry<NameKey, StudyGroup>> found = new ArrayList<>();
+        readLock.lock();
+        try{
+            transferredStudentsIndex.forEachInRange(from, to,
+                    (key, studyGroup) -> found.add(new CustomAbstractMap.SimpleImmutableEntry<>(new NameKey(studyGroup.getName(), key), studyGroup)));
+        } finally {
+            readLock.unlock();
+        }
+        found.sort(Map.Entry.comparingByKey());
+        printFound(byKey(found), responseOutputer);
+    }
+
     /**
      * filter by form of education
      * @param arg form of education
      */
-    public void filter_greater_than_form_of_education(String arg){
-        FormOfEducation formOfEducation = null;
+    public void filter_greater_than_form_of_education(String arg,ResponseOutputer responseOutputer){
         try{
-            formOfEducation = FormOfEducation.valueOf(arg.toUpperCase());
-            FormOfEducation finalFormOfEducation = formOfEducation;
-            Map<String,StudyGroup> filteredByFormOfEducation = studyGroupCollection.entrySet()
-                    .stream()
-                    .filter(studyGroup -> finalFormOfEducation.compareTo(studyGroup.getValue().getFormOfEducation()) < 0 )
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            printSelected(() -> formOfEducationIndex.select(">", arg), responseOutputer);
+        }catch(IllegalArgumentException err){
+            responseOutputer.append("Нет таких элементов!");
+            LOG.error("Нет таких элементов!");
+        }
+    }
 
-            if(!filteredByFormOfEducation.isEmpty()) printCollection(filteredByFormOfEducation);
+    /**
+     * Filter by enum fields. The query is a list of alternatives separated by '+', every alternative
+     * is a list of conditions separated by ',', which must all be true. A condition is
+     * field=VALUE|VALUE, field!=VALUE|VALUE, field&gt;VALUE or field&lt;VALUE,
+     * where field is formOfEducation, semester or country.
+     * @param arg query
+     */
+    public void filter_by_enums(String arg,ResponseOutputer responseOutputer){
+        try{
+            printSelected(() -> selectByEnums(arg), responseOutputer);
+        }catch(IllegalArgumentException err){
+            responseOutputer.append("Некорректный запрос: " + err.getMessage());
+            responseOutputer.append("Пример: formOfEducation=FULL_TIME_EDUCATION|EVENING_CLASSES,semester>SECOND+country=CHINA");
+            LOG.error("Некорректный запрос: " + err.getMessage());
+        }
+    }
 
-            else {
-                ResponseOutputer.append("Нет таких элементов!");
-                LOG.error("Нет таких элементов!");
+    private RoaringBitmap selectByEnums(String query){
+        RoaringBitmap selected = new RoaringBitmap();
+        for(String alternative : query.split("\\+")){
+            RoaringBitmap matching = null;
+            for(String condition : alternative.split(",")){
+                RoaringBitmap matchingCondition = selectByEnum(condition);
+                matching = matching == null ? matchingCondition : matching.and(matchingCondition);
             }
+            selected = selected.or(matching);
+        }
+        return selected;
+    }
 
-        }catch(IllegalArgumentException err){
-            ResponseOutputer.append("Нет таких элементов!");
-            LOG.error("Нет таких элементов!");
+    private RoaringBitmap selectByEnum(String condition){
+        Matcher matcher = ENUM_CONDITION.matcher(condition.trim());
+        if(!matcher.matches()) throw new IllegalArgumentException("условие '" + condition + "' не распознано");
+        String field = matcher.group(1);
+        if(field.equalsIgnoreCase("formOfEducation")) return formOfEducationIndex.select(matcher.group(2), matcher.group(3));
+        if(field.equalsIgnoreCase("semester")) return semesterIndex.select(matcher.group(2), matcher.group(3));
+        if(field.equalsIgnoreCase("country")) return countryIndex.select(matcher.group(2), matcher.group(3));
+        throw new IllegalArgumentException("нет поля '" + field + "'");
+    }
+
+    /**
+     * Print elements from the slots selected under the read lock in the order of names
+     */
+    private void printSelected(Supplier<RoaringBitmap> selection, ResponseOutputer responseOutputer){
+        List<Map.Entry<NameKey, StudyGroup>> found = new ArrayList<>();
+        readLock.lock();
+        try{
+            selection.get().forEach(slot -> {
+                StudyGroup studyGroup = slots.elementAt(slot);
+                found.add(new CustomAbstractMap.SimpleImmutableEntry<>(new NameKey(studyGroup.getName(), slots.keyAt(slot)), studyGroup));
+            });
+        } finally {
+            readLock.unlock();
         }
+        found.sort(Map.Entry.comparingByKey());
+        printFound(byKey(found), responseOutputer);
     }
 
     /**
      * Remove if element is lower
      */
-    public void removeLower(StudyGroupRaw studyGroupRaw){
-        StudyGroup removeStudyGroup =
-                    new StudyGroup(
-                            getLastId()+1,
-                            studyGroupRaw.getName(),
-                            studyGroupRaw.getCoordinates(),
-                            LocalDate.now(),
-                            studyGroupRaw.getStudentsCount(),
-                            studyGroupRaw.getTransferredStudents(),
-                            studyGroupRaw.getFormOfEducation(),
-                            studyGroupRaw.getSemesterEnum(),
-                            studyGroupRaw.getGroupAdmin()
-                );
-        if(studyGroupCollection.entrySet().removeIf(studyGroup -> studyGroup.getValue().compareTo(removeStudyGroup) < 0))
-        {
-            ResponseOutputer.append("Успешно удалили из коллекции");
-            LOG.info("Успешно удалили из коллекции");
-        }
-        else {
-            ResponseOutputer.append("Ничего не удалили из коллекции");
-            LOG.error("Ничего не удалили из коллекции");
+    public void removeLower(StudyGroupRaw studyGroupRaw,ResponseOutputer responseOutputer){
+        writeLock.lock();
+        try{
+            StudyGroup removeStudyGroup =
+                        new StudyGroup(
+                                getLastId()+1,
+                                studyGroupRaw.getName(),
+                                studyGroupRaw.getCoordinates(),
+                                LocalDate.now(),
+                                studyGroupRaw.getStudentsCount(),
+                                studyGroupRaw.getTransferredStudents(),
+                                studyGroupRaw.getFormOfEducation(),
+                                studyGroupRaw.getSemesterEnum(),
+                                studyGroupRaw.getGroupAdmin()
+                    );
+            List<String> lowerKeys = new ArrayList<>();
+            for(NameKey nameKey : nameIndex.headMap(new NameKey(removeStudyGroup.getName(), ""), false).keySet())
+                lowerKeys.add(nameKey.key);
+            lowerKeys.forEach(this::removeStudyGroup);
+            if(!lowerKeys.isEmpty())
+            {
+                responseOutputer.append("Успешно удалили из коллекции");
+                LOG.info("Успешно удалили из коллекции");
+            }
+            else {
+                responseOutputer.append("Ничего не удалили из коллекции");
+                LOG.error("Ничего не удалили из коллекции");
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -320,8 +964,9 @@ public class CollectionManager {
      * replace if element is greater
      * @param arg key of TreeMap
      */
-    public void replace_if_greater(String arg,StudyGroupRaw studyGroupRaw){
-        if(studyGroupCollection.get(arg) != null){
+    public void replace_if_greater(String arg,StudyGroupRaw studyGroupRaw,ResponseOutputer responseOutputer){
+        writeLock.lock();
+        try{
             StudyGroup replaceStudyGroup =
                     new StudyGroup(
                         getLastId()+1,
@@ -334,33 +979,45 @@ public class CollectionManager {
                         studyGroupRaw.getSemesterEnum(),
                         studyGroupRaw.getGroupAdmin()
             );
-            if(studyGroupCollection.get(arg).getStudentsCount().compareTo(replaceStudyGroup.getStudentsCount()) < 0){
-                studyGroupCollection.replace(arg,replaceStudyGroup);
-                ResponseOutputer.append("Успешно заменили элементы");
-                LOG.info("Успешно заменили элементы");
+            StudyGroup[] previous = new StudyGroup[1];
+            StudyGroup current = studyGroupCollection.computeIfPresent(arg, (key, studyGroup) -> {
+                previous[0] = studyGroup;
+                return studyGroup.getStudentsCount().compareTo(replaceStudyGroup.getStudentsCount()) < 0 ? replaceStudyGroup : studyGroup;
+            });
+            if(current != null){
+                if(current == replaceStudyGroup){
+                    lastId++;
+                    indexStudyGroup(arg, previous[0], replaceStudyGroup);
+                    responseOutputer.append("Успешно заменили элементы");
+                    LOG.info("Успешно заменили элементы");
+                }
+                else {
+                    responseOutputer.append("Не заменили элементы");
+                    LOG.info("Не заменили элементы");
+                }
             }
-            ResponseOutputer.append("Не заменили элементы");
-            LOG.info("Не заменили элементы");
-        }
-        else {
-            ResponseOutputer.append("Не удалось удалить. Нет такого ключа.");
-            LOG.error("Не удалось удалить. Нет такого ключа.");
+            else {
+                responseOutputer.append("Не удалось удалить. Нет такого ключа.");
+                LOG.error("Не удалось удалить. Нет такого ключа.");
+            }
+    
+        } finally {
+            writeLock.unlock();
         }
-
     }
 
     /**
-     * Print collection as tableView;
-     * @param collection collection, which will print
+     * Print elements as one tableView
+     * @param rows elements with their keys in the order to print
      */
-
-    public void printCollection(Map<String, StudyGroup> collection){
-        Map<String, StudyGroup> sortedMap = sortValues(collection);
+    private void printRows(Collection<Map.Entry<String, StudyGroup>> rows, ResponseOutputer responseOutputer){
         AsciiTable at = new AsciiTable();
         at.addRule();
         at.addRow("id","Key","name","Coord-X", "Coord-Y", "creatDate","St", "T-St","formEdu","SEM","A-Name","passId","CNTR","LOC-X","LOC-Y","LOC-Z","LOC-Name");
         at.addRule();
-        sortedMap.forEach((key,entry)-> {
+        rows.forEach(row -> {
+            String key = row.getKey();
+            StudyGroup entry = row.getValue();
             at.addRow(
                     String.valueOf(entry.getId()),
                     String.valueOf(key),
@@ -386,27 +1043,52 @@ public class CollectionManager {
         CWC_LongestLine cwc = new CWC_LongestLine();
         at.getRenderer().setCWC(cwc);
         String render = at.render();
-        ResponseOutputer.append(render);
+        responseOutputer.append(render);
     }
-    public static <K, V extends Comparable<V>> Map<K, V> sortValues(final Map<K, V> m)
-    {
-        Comparator<K> com = new Comparator<K>()
-        {
-            public int compare(K k1, K k2)
-            {
-                int compare = m.get(k1).compareTo(m.get(k2));
-                if(compare == 0)
-                {
-                    return 1;
-                }
-                else
-                {
-                    return compare;
-                }
-            }
-        };Map<K, V> sortedByValues = new TreeMap<K, V>(com);
-        sortedByValues.putAll(m);
-        return sortedByValues;
+    /**
+     * Key of the name index: elements are ordered as StudyGroup.compareTo orders them, by name,
+     * elements with equal names - by their keys in the collection.
+     */
+    private static final class NameKey implements Comparable<NameKey> {
+        final String name;
+        final String key;
+
+        NameKey(String name, String key){
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(NameKey other){
+            int compare = name.compareTo(other.name);
+            return compare != 0 ? compare : key.compareTo(other.key);
+        }
+    }
+
+    /**
+     * Lock, which does not lock. Used instead of the read lock, where the collection is safe to read concurrently.
+     */
+    private static class NoLock implements Lock {
+        public void lock() {
+        }
+
+        public void lockInterruptibly() {
+        }
+
+        public boolean tryLock() {
+            return true;
+        }
+
+        public boolean tryLock(long time, TimeUnit unit) {
+            return true;
+        }
+
+        public void unlock() {
+        }
+
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
     }
 
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package server.utilities;
 import com.sun.scenario.effect.impl.sw.sse.SSEBlend_SRC_OUTPeer;
+import common.interaction.Request;
+import common.interaction.ScriptBatch;
 import common.interaction.StudyGroupRaw;
 import server.commands.ICommand;
 import server.commands.InsertCommand;
@@ -30,29 +32,52 @@ public class CommandManager{
     /**
      * Execute concrete command by name
      * @param commandName Command name
+     * @param responseOutputer Output of the request
      */
-    public boolean executeCommand(String[] commandName, Object commandObjectArgument){
+    public boolean executeCommand(String[] commandName, Object commandObjectArgument, ResponseOutputer responseOutputer){
         try {
             ICommand command = commands.get(commandName[0]);
             if(commandObjectArgument == null){
-                command.execute(commandName);
+                command.execute(commandName,responseOutputer);
+            }
+            else if(commandObjectArgument instanceof ScriptBatch){
+                command.execute(commandName,responseOutputer);
+                return executeBatch((ScriptBatch) commandObjectArgument, responseOutputer);
             }
             else{
-                command.execute(commandName,(StudyGroupRaw) commandObjectArgument);
+                command.execute(commandName,(StudyGroupRaw) commandObjectArgument,responseOutputer);
             }
             return true;
         }
         catch(NullPointerException | IOException err){
-            ResponseOutputer.append("Неверный комманд! help - вывести справку по доступным командам ");
+            responseOutputer.append("Неверный комманд! help - вывести справку по доступным командам ");
             return false;
         }
     }
 
+    /**
+     * Execute commands of a script one after another into one output, stop at the first failed command.
+     * A script inside a script is refused, the client never nests them
+     * @param scriptBatch Commands of the script
+     * @param responseOutputer Output of the request
+     * @return false if a command failed
+     */
+    public boolean executeBatch(ScriptBatch scriptBatch, ResponseOutputer responseOutputer){
+        for(Request request : scriptBatch.getRequests()){
+            if(request.getCommandObjectArgument() instanceof ScriptBatch
+                    || !executeCommand(request.getCommandName(), request.getCommandObjectArgument(), responseOutputer)){
+                responseOutputer.append("Выполнение скрипта прервано!");
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Add server.commands to history
      * @param command command name
      */
-    public static void addToHistory(String command){
+    public static synchronized void addToHistory(String command){
         if (commandHistory.size() >= MAX_HISTORY_SIZE) {
             commandHistory.remove(0);
         }
@@ -60,10 +85,12 @@ public class CommandManager{
     }
 
     /**
-     * @return Command history list
+     * @return Copy of command history list
      */
     public List<String> getCommandHistory(){
-      return commandHistory;
+        synchronized (CommandManager.class) {
+            return new ArrayList<>(commandHistory);
+        }
     }
 
     /**
@@ -1,6 +1,11 @@
 package server.utilities;
 import java.io.*;
+import java.nio.file.*;
 import java.time.LocalDate;
+import java.time.DateTimeException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
@@ -17,7 +22,13 @@ import common.datas.*;
  * File manager, saving and loading collection from file.
  */
 public class FileManager {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String CORRUPTED_SUFFIX = ".corrupted";
     private final String path;
+    private final boolean memoryMapped;
+    private final boolean binarySnapshot;
+    private final boolean csvFallback;
     private long lastId = 1L;
     public final Logger LOG
             = LoggerFactory.getLogger(FileManager.class);
@@ -27,7 +38,45 @@ public class FileManager {
      * @throws FileNotFoundException If file not found
      */
     public FileManager(String path) throws FileNotFoundException, CannotReadFileException {
+        this(path, false);
+    }
+
+    /**
+     * Constructor
+     * @param path Path of CSV file
+     * @param memoryMapped Read file through memory mapping instead of opencsv
+     * @throws FileNotFoundException If file not found
+     */
+    public FileManager(String path, boolean memoryMapped) throws FileNotFoundException, CannotReadFileException {
+        this(path, memoryMapped, false);
+    }
+
+    /**
+     * Constructor
+     * @param path Path of CSV file
+     * @param memoryMapped Read file through memory mapping instead of opencsv
+     * @param binarySnapshot Keep collection in binary snapshot next to the CSV file,
+     *                       CSV file is then only imported when there is no snapshot yet
+     * @throws FileNotFoundException If file not found
+     */
+    public FileManager(String path, boolean memoryMapped, boolean binarySnapshot) throws FileNotFoundException, CannotReadFileException {
+        this(path, memoryMapped, binarySnapshot, false);
+    }
+
+    /**
+     * Constructor
+     * @param path Path of CSV file
+     * @param memoryMapped Read file through memory mapping instead of opencsv
+     * @param binarySnapshot Keep collection in binary snapshot next to the CSV file,
+     *                       CSV file is then only imported when there is no snapshot yet
+     * @param csvFallback Move a snapshot, which cannot be read, aside and read CSV file instead of refusing to start
+     * @throws FileNotFoundException If file not found
+     */
+    public FileManager(String path, boolean memoryMapped, boolean binarySnapshot, boolean csvFallback) throws FileNotFoundException, CannotReadFileException {
         this.path = path;
+        this.memoryMapped = memoryMapped;
+        this.binarySnapshot = binarySnapshot;
+        this.csvFallback = csvFallback;
         try{
             File file = new File(path);
             if(!file.exists()) throw new FileNotFoundException();
@@ -43,98 +92,303 @@ public class FileManager {
     }
 
     /**
-     * Read collection from CSV file
+     * Read collection from binary snapshot, if it is used and exists, otherwise from CSV file.
+     * A snapshot, which cannot be read, is only replaced by CSV file if csvFallback is set,
+     * CSV file may be older than the snapshot.
      * @return collection TreeMap
+     * @throws IOException If the snapshot cannot be read and csvFallback is not set
      */
     public CustomTreeMap<String, StudyGroup> readCollection() throws IOException {
+        File snapshot = new File(path + SNAPSHOT_SUFFIX);
+        if (binarySnapshot && snapshot.exists()) {
+            try (InputStream inputStream = new FileInputStream(snapshot)) {
+                SnapshotFormat.Snapshot loaded = SnapshotFormat.read(inputStream);
+                lastId = Math.max(lastId, loaded.getLastId());
+                LOG.info("Данные добавлены в коллекцию из снимка!");
+                return loaded.getCollection();
+            } catch (IOException err) {
+                if (!csvFallback) {
+                    LOG.error("Снимок коллекции " + snapshot + " поврежден! Сервер не запущен, чтобы прочитать CSV файл, укажите -Dserver.snapshot.fallback=true");
+                    throw err;
+                }
+                Path corrupted = Paths.get(snapshot.getPath() + CORRUPTED_SUFFIX);
+                Files.move(snapshot.toPath(), corrupted, StandardCopyOption.REPLACE_EXISTING);
+                LOG.error("Снимок коллекции поврежден и перенесен в " + corrupted + ", данные читаются из CSV файла");
+            }
+        }
+        return importCsv();
+    }
+
+    /**
+     * Read collection from CSV file. Rows are read in chunks, every chunk is parsed
+     * on the fork-join pool while the next one is being read, then the tree is built
+     * at once from the rows sorted by key.
+     * @return collection TreeMap
+     */
+    public CustomTreeMap<String, StudyGroup> importCsv() throws IOException {
         CustomTreeMap<String, StudyGroup> studyGroupCollection = new CustomTreeMap<>();
-        String[] data;
-        int row = 0;
+        List<ForkJoinTask<ParsedChunk>> chunks = new ArrayList<>();
+        boolean read = false;
         try {
-            InputStream inputStream = new FileInputStream(path);
-            CSVReader reader = new CSVReader(new InputStreamReader(inputStream));
+            if (memoryMapped) MappedCsvReader.read(path, chunks);
+            else readChunks(chunks);
+            read = true;
+        } catch (IOException err){
+            LOG.error("Ошибка во время чтения из файла");
+        }
+
+        int parsedRows = 0;
+        for (ForkJoinTask<ParsedChunk> chunk : chunks) parsedRows += chunk.join().size;
+        ParsedRow[] parsed = new ParsedRow[parsedRows];
+        int position = 0;
+        int firstRow = 0;
+        for (ForkJoinTask<ParsedChunk> chunk : chunks) {
+            ParsedChunk parsedChunk = chunk.join();
+            for (int errorRow : parsedChunk.errorRows) LOG.error("Ошибка в " + (firstRow + errorRow) + " строке!");
+            if (parsedChunk.maxId > lastId) lastId = parsedChunk.maxId;
+            for (int i = 0; i < parsedChunk.size; i++) parsedChunk.rows[i].row += firstRow;
+            System.arraycopy(parsedChunk.rows, 0, parsed, position, parsedChunk.size);
+            position += parsedChunk.size;
+            firstRow += parsedChunk.rowCount;
+        }
+        List<ParsedRow> sorted = sortUniqueByKey(parsed);
+        studyGroupCollection.buildFromSorted(sorted.size(), sorted.iterator());
+        if (read) LOG.info("Данные добавлены в коллекцию!");
+        return studyGroupCollection;
+    }
+
+    /**
+     * Parse one CSV row
+     * @param data columns of the row
+     * @return element of collection
+     * @throws IndexOutOfBoundsException if there are not enough columns
+     * @throws IllegalArgumentException if value of a column is incorrect
+     */
+    static StudyGroup parseStudyGroup(String[] data) {
+        if(data.length == 16) throw new IndexOutOfBoundsException();
+
+        long id = Long.parseLong(data[0]);
+        String name = data[2];
+        int coordinate_x = Integer.parseInt(data[3]);
+        long coordinate_y = Long.parseLong(data[4]);
+        LocalDate localDate = LocalDate.parse(data[5]);
+        Long students_count = Long.parseLong(data[6]);
+        long transferred_students = Long.parseLong(data[7]);
+        FormOfEducation formOfEducation = FormOfEducation.valueOf(data[8]);
+        Semester semester = Semester.valueOf(data[9]);
+        String admin_name = data[10];
+        String passport_id = data[11];
+        Country country = Country.valueOf(data[12]);
+        Float location_x = Float.parseFloat(data[13]);
+        Long location_y = Long.parseLong(data[14]);
+        int location_z = Integer.parseInt(data[15]);
+        String location_name = data[16];
+
+        Coordinates coordinates = new Coordinates(coordinate_x, coordinate_y);
+        Location location = new Location(location_x, location_y, location_z, location_name);
+        Person groupAdmin = new Person(admin_name, passport_id, country, location);
+        return new StudyGroup(
+                id,
+                name,
+                coordinates,
+                localDate,
+                students_count,
+                transferred_students,
+                formOfEducation,
+                semester,
+                groupAdmin
+        );
+    }
+
+    /**
+     * Read rows with opencsv and submit them for parsing chunk by chunk
+     */
+    private void readChunks(List<ForkJoinTask<ParsedChunk>> chunks) throws IOException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new FileInputStream(path)))) {
+            String[] data;
+            List<String[]> rows = new ArrayList<>(CHUNK_SIZE);
             while ((data = reader.readNext()) != null) {
-                row++;
-                try{
-                    if(data.length == 16) throw new IndexOutOfBoundsException();
-
-                    long id = Long.parseLong(data[0]);
-                    String key = data[1];
-                    String name = data[2];
-                    int coordinate_x = Integer.parseInt(data[3]);
-                    long coordinate_y = Long.parseLong(data[4]);
-                    LocalDate localDate = LocalDate.parse(data[5]);
-                    Long students_count = Long.parseLong(data[6]);
-                    long transferred_students = Long.parseLong(data[7]);
-                    FormOfEducation formOfEducation = FormOfEducation.valueOf(data[8]);
-                    Semester semester = Semester.valueOf(data[9]);
-                    String admin_name = data[10];
-                    String passport_id = data[11];
-                    Country country = Country.valueOf(data[12]);
-                    Float location_x = Float.parseFloat(data[13]);
-                    Long location_y = Long.parseLong(data[14]);
-                    int location_z = Integer.parseInt(data[15]);
-                    String location_name = data[16];
-
-                    if (id > lastId) {
-                        lastId = id;
-                    }
-
-                    Coordinates coordinates = new Coordinates(coordinate_x, coordinate_y);
-                    Location location = new Location(location_x, location_y, location_z, location_name);
-                    Person groupAdmin = new Person(admin_name, passport_id, country, location);
-                    StudyGroup studyGroup = new StudyGroup(
-                            id,
-                            name,
-                            coordinates,
-                            localDate,
-                            students_count,
-                            transferred_students,
-                            formOfEducation,
-                            semester,
-                            groupAdmin
-                    );
-                    studyGroupCollection.put(key, studyGroup);
-
-                }catch(IndexOutOfBoundsException | IllegalArgumentException err){
-                    LOG.error("Ошибка в " + row + " строке!");
+                rows.add(data);
+                if (rows.size() == CHUNK_SIZE) {
+                    chunks.add(submitChunk(rows));
+                    rows = new ArrayList<>(CHUNK_SIZE);
                 }
             }
-            LOG.info("Данные добавлены в коллекцию!");
-            reader.close();
-        } catch (IOException err){
-            LOG.error("Ошибка во время чтения из файла");
+            if (!rows.isEmpty()) chunks.add(submitChunk(rows));
+        }
+    }
+
+    private static ForkJoinTask<ParsedChunk> submitChunk(List<String[]> rows) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            ParsedChunk chunk = new ParsedChunk(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                String[] data = rows.get(i);
+                int row = i + 1;
+                try {
+                    StudyGroup studyGroup = parseStudyGroup(data);
+                    chunk.add(new ParsedRow(data[1], studyGroup, row));
+                } catch (IndexOutOfBoundsException | IllegalArgumentException | DateTimeException err) {
+                    chunk.errorRows.add(row);
+                }
+            }
+            chunk.rowCount = rows.size();
+            return chunk;
+        });
+    }
 
+    /**
+     * Sort parsed rows by key. Of rows with equal keys the last one in the file wins, as with put.
+     */
+    static List<ParsedRow> sortUniqueByKey(ParsedRow[] parsed) {
+        Arrays.parallelSort(parsed, (a, b) -> {
+            int compare = a.key.compareTo(b.key);
+            return compare != 0 ? compare : Integer.compare(a.row, b.row);
+        });
+        List<ParsedRow> unique = new ArrayList<>(parsed.length);
+        for (int i = 0; i < parsed.length; i++) {
+            if (i + 1 < parsed.length && parsed[i].key.equals(parsed[i + 1].key)) continue;
+            unique.add(parsed[i]);
         }
+        return unique;
+    }
 
-        return studyGroupCollection;
+    /**
+     * Parsed CSV row, key and element with the number of the row in file
+     */
+    static final class ParsedRow implements Map.Entry<String, StudyGroup> {
+        final String key;
+        final StudyGroup studyGroup;
+        int row;
+
+        ParsedRow(String key, StudyGroup studyGroup, int row) {
+            this.key = key;
+            this.studyGroup = studyGroup;
+            this.row = row;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public StudyGroup getValue() {
+            return studyGroup;
+        }
+
+        public StudyGroup setValue(StudyGroup value) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
-     * Write collection to CSV file
-     * @param studyGroupCollection collection TreeMap
+     * Result of parsing one chunk of rows, row numbers are counted from the start of the chunk
      */
-    public void writeCollection(CustomTreeMap<String,StudyGroup> studyGroupCollection) {
+    static final class ParsedChunk {
+        ParsedRow[] rows;
+        final List<Integer> errorRows = new ArrayList<>();
+        int size;
+        int rowCount;
+        long maxId = Long.MIN_VALUE;
+
+        ParsedChunk(int capacity) {
+            rows = new ParsedRow[capacity];
+        }
+
+        void add(ParsedRow parsedRow) {
+            if (size == rows.length) rows = Arrays.copyOf(rows, Math.max(16, size * 2));
+            rows[size++] = parsedRow;
+            if (parsedRow.studyGroup.getId() > maxId) maxId = parsedRow.studyGroup.getId();
+        }
+    }
+
+    /**
+     * Write collection to binary snapshot, if it is used, otherwise to CSV file
+     * @param studyGroupCollection collection or its snapshot
+     * @param lastId last used id
+     * @return true if the collection was written
+     */
+    public boolean writeCollection(SortedMap<String,StudyGroup> studyGroupCollection, long lastId) {
+        if (binarySnapshot) return writeSnapshot(studyGroupCollection, lastId);
+        return exportCsv(studyGroupCollection);
+    }
+
+    /**
+     * Write collection to binary snapshot through temporary file, which replaces the old snapshot at once
+     * @param studyGroupCollection collection or its snapshot
+     * @param lastId last used id
+     * @return true if the snapshot was written
+     */
+    public boolean writeSnapshot(SortedMap<String,StudyGroup> studyGroupCollection, long lastId) {
+        Path snapshot = Paths.get(path + SNAPSHOT_SUFFIX).toAbsolutePath();
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                SnapshotFormat.write(outputStream, studyGroupCollection, lastId);
+            }
+            replace(temporary, snapshot);
+            LOG.info("Успешно сохранено в снимок!");
+            return true;
+        } catch (IOException err) {
+            LOG.error("Отказано в доступе для записи в файл!");
+            deleteTemporary(temporary);
+            return false;
+        }
+    }
+
+    /**
+     * Remove temporary file of a failed write, so it is not left next to the collection
+     */
+    private void deleteTemporary(Path temporary) {
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException err) {
+            LOG.error("Не удалось удалить временный файл " + temporary.getFileName());
+        }
+    }
+
+    /**
+     * Write collection to CSV file through temporary file, which replaces the old file at once
+     * @param studyGroupCollection collection or its snapshot
+     * @return true if the file was written
+     */
+    public boolean exportCsv(SortedMap<String,StudyGroup> studyGroupCollection) {
+        File file = new File(path);
+        Path csv = file.toPath().toAbsolutePath();
+        Path temporary = csv.resolveSibling(csv.getFileName() + ".tmp");
         try {
-            File file = new File(path);
             if(!file.canWrite()) throw new CannotWriteException();
-            OutputStream outputStream = new FileOutputStream(path);
-            CSVWriter writer = new CSVWriter(new OutputStreamWriter(outputStream), ',', '\0');
-            studyGroupCollection.forEach((key, value) -> {
-                String[] data = new String[17];
-                data[0] = value.getId().toString();
-                data[1] = key;
-                String[] values = value.toString().split(",");
-                System.arraycopy(values, 1, data, 2, values.length-1);
-                writer.writeNext(data);
-
-            });
-            writer.close();
+            try (OutputStream outputStream = Files.newOutputStream(temporary);
+                 CSVWriter writer = new CSVWriter(new OutputStreamWriter(outputStream), ',', '\0')) {
+                studyGroupCollection.forEach((key, value) -> {
+                    String[] data = new String[17];
+                    data[0] = value.getId().toString();
+                    data[1] = key;
+                    String[] values = value.toString().split(",");
+                    System.arraycopy(values, 1, data, 2, values.length-1);
+                    writer.writeNext(data);
+
+                });
+                if(writer.checkError()) throw new IOException("Ошибка записи CSV файла");
+            }
+            replace(temporary, csv);
             LOG.info("Успешно сохранено в файл!");
+            return true;
         }catch (IOException | CannotWriteException err){
             LOG.error("Отказано в доступе для записи в файл!");
+            deleteTemporary(temporary);
+            return false;
         }
     }
+    /**
+     * Rename written temporary file to target, atomically where the file system allows it
+     */
+    private static void replace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException err) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public Long getLastId(){
         return lastId;
     }
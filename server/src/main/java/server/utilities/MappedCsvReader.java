@@ -0,0 +1,301 @@
+package server.utilities;
+
+import com.opencsv.CSVParser;
+import common.datas.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * CSV reader over a memory-mapped file. Columns are found directly in the byte buffer,
+ * numbers, dates and enums are parsed from the bytes, and only the text fields,
+ * which StudyGroup keeps, become Strings. Rows with quotes are handed to opencsv.
+ */
+final class MappedCsvReader {
+    private static final int COLUMNS = 17;
+    private static final long MAX_MAPPING = 1L << 30;
+    private static final int MIN_RANGE = 1 << 20;
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[][] FORMS_OF_EDUCATION = names(FormOfEducation.values());
+    private static final byte[][] SEMESTERS = names(Semester.values());
+    private static final byte[][] COUNTRIES = names(Country.values());
+
+    private MappedCsvReader() {
+    }
+
+    /**
+     * Map file window by window and submit its line ranges for parsing
+     * @param path Path of CSV file
+     * @param chunks parsing tasks in file order
+     */
+    static void read(String path, List<ForkJoinTask<FileManager.ParsedChunk>> chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long length = Math.min(MAX_MAPPING, fileSize - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < fileSize) {
+                    end = lineEndBefore(buffer, end);
+                    if (end == 0) throw new IOException("Строка длиннее " + MAX_MAPPING + " байт");
+                }
+                submitRanges(buffer, end, chunks);
+                position += end;
+            }
+        }
+    }
+
+    private static void submitRanges(MappedByteBuffer buffer, int end, List<ForkJoinTask<FileManager.ParsedChunk>> chunks) {
+        int ranges = Math.max(1, Math.min(end / MIN_RANGE, ForkJoinPool.getCommonPoolParallelism() * 4));
+        int from = 0;
+        for (int i = 1; i <= ranges && from < end; i++) {
+            int to = i == ranges ? end : lineEndAfter(buffer, (int) ((long) end * i / ranges), end);
+            if (to <= from) continue;
+            final int rangeFrom = from;
+            final int rangeTo = to;
+            chunks.add(ForkJoinPool.commonPool().submit(() -> parseRange(buffer, rangeFrom, rangeTo)));
+            from = to;
+        }
+    }
+
+    /**
+     * @return position after the last line break before end, or 0
+     */
+    private static int lineEndBefore(MappedByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--)
+            if (buffer.get(i) == '\n') return i + 1;
+        return 0;
+    }
+
+    /**
+     * @return position after the first line break at or after from, or end
+     */
+    private static int lineEndAfter(MappedByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++)
+            if (buffer.get(i) == '\n') return i + 1;
+        return end;
+    }
+
+    private static FileManager.ParsedChunk parseRange(MappedByteBuffer buffer, int from, int to) {
+        FileManager.ParsedChunk chunk = new FileManager.ParsedChunk(1024);
+        LineParser parser = new LineParser(buffer);
+        int row = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') lineEnd++;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') contentEnd--;
+            row++;
+            try {
+                chunk.add(parser.parse(lineStart, contentEnd, row));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException | DateTimeException | IOException err) {
+                chunk.errorRows.add(row);
+            }
+            lineStart = lineEnd + 1;
+        }
+        chunk.rowCount = row;
+        return chunk;
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) names[i] = values[i].name().getBytes(CHARSET);
+        return names;
+    }
+
+    /**
+     * Parser of single lines of one buffer, not thread-safe
+     */
+    private static final class LineParser {
+        private final MappedByteBuffer buffer;
+        private final int[] starts = new int[COLUMNS];
+        private final int[] ends = new int[COLUMNS];
+        private byte[] scratch = new byte[64];
+
+        LineParser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        FileManager.ParsedRow parse(int from, int to, int row) throws IOException {
+            int columns = 0;
+            int start = from;
+            for (int i = from; i < to && columns < COLUMNS; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') return parseQuoted(from, to, row);
+                if (b == ',') {
+                    starts[columns] = start;
+                    ends[columns++] = i;
+                    start = i + 1;
+                }
+            }
+            if (columns < COLUMNS) {
+                for (int i = start; i < to; i++)
+                    if (buffer.get(i) == '"') return parseQuoted(from, to, row);
+                starts[columns] = start;
+                ends[columns++] = to;
+            }
+            if (columns < COLUMNS) throw new IndexOutOfBoundsException();
+
+            long id = parseLong(0);
+            String key = string(1);
+            String name = string(2);
+            int coordinate_x = parseInt(3);
+            long coordinate_y = parseLong(4);
+            LocalDate localDate = parseDate(5);
+            Long students_count = parseLong(6);
+            long transferred_students = parseLong(7);
+            FormOfEducation formOfEducation = FormOfEducation.values()[parseEnum(8, FORMS_OF_EDUCATION)];
+            Semester semester = Semester.values()[parseEnum(9, SEMESTERS)];
+            String admin_name = string(10);
+            String passport_id = string(11);
+            Country country = Country.values()[parseEnum(12, COUNTRIES)];
+            Float location_x = parseFloat(13);
+            Long location_y = parseLong(14);
+            int location_z = parseInt(15);
+            String location_name = string(16);
+
+            Coordinates coordinates = new Coordinates(coordinate_x, coordinate_y);
+            Location location = new Location(location_x, location_y, location_z, location_name);
+            Person groupAdmin = new Person(admin_name, passport_id, country, location);
+            StudyGroup studyGroup = new StudyGroup(
+                    id,
+                    name,
+                    coordinates,
+                    localDate,
+                    students_count,
+                    transferred_students,
+                    formOfEducation,
+                    semester,
+                    groupAdmin
+            );
+            return new FileManager.ParsedRow(key, studyGroup, row);
+        }
+
+        /**
+         * Rows with quoted fields are rare, they are parsed by opencsv as before
+         */
+        private FileManager.ParsedRow parseQuoted(int from, int to, int row) throws IOException {
+            String[] data = new CSVParser().parseLine(decode(from, to));
+            return new FileManager.ParsedRow(data[1], FileManager.parseStudyGroup(data), row);
+        }
+
+        private String string(int column) {
+            return decode(starts[column], ends[column]);
+        }
+
+        private String decode(int from, int to) {
+            int length = to - from;
+            if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int i = 0; i < length; i++) scratch[i] = buffer.get(from + i);
+            return new String(scratch, 0, length, CHARSET);
+        }
+
+        /**
+         * Same rules as Long.parseLong, without creating a String
+         */
+        private long parseLong(int column) {
+            int i = starts[column];
+            int to = ends[column];
+            if (i >= to) throw new NumberFormatException();
+            boolean negative = false;
+            byte first = buffer.get(i);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                if (++i == to) throw new NumberFormatException();
+            }
+            long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            long multmin = limit / 10;
+            long result = 0;
+            for (; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9 || result < multmin) throw new NumberFormatException();
+                result *= 10;
+                if (result < limit + digit) throw new NumberFormatException();
+                result -= digit;
+            }
+            return negative ? result : -result;
+        }
+
+        private int parseInt(int column) {
+            long value = parseLong(column);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw new NumberFormatException();
+            return (int) value;
+        }
+
+        /**
+         * Whole numbers like 123.0, as the collection writes them, are parsed in place,
+         * everything else goes through Float.parseFloat
+         */
+        private Float parseFloat(int column) {
+            int i = starts[column];
+            int to = ends[column];
+            boolean negative = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) negative = buffer.get(i++) == '-';
+            int digits = 0;
+            int value = 0;
+            for (; i < to && digits <= 7; i++, digits++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) break;
+                value = value * 10 + digit;
+            }
+            boolean whole = digits > 0 && digits <= 7;
+            if (whole && i < to) {
+                whole = buffer.get(i++) == '.' && i < to;
+                for (; whole && i < to; i++) whole = buffer.get(i) == '0';
+            }
+            if (!whole) return Float.parseFloat(string(column));
+            return negative ? -(float) value : (float) value;
+        }
+
+        /**
+         * yyyy-MM-dd is parsed in place, other ISO forms go through LocalDate.parse
+         */
+        private LocalDate parseDate(int column) {
+            int from = starts[column];
+            if (ends[column] - from == 10 && buffer.get(from + 4) == '-' && buffer.get(from + 7) == '-') {
+                int year = digits(from, 4);
+                int month = digits(from + 5, 2);
+                int day = digits(from + 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) return LocalDate.of(year, month, day);
+            }
+            return LocalDate.parse(string(column));
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) return -1;
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * @return ordinal of the enum constant, which name equals the column
+         */
+        private int parseEnum(int column, byte[][] names) {
+            int from = starts[column];
+            int length = ends[column] - from;
+            for (int ordinal = 0; ordinal < names.length; ordinal++) {
+                byte[] name = names[ordinal];
+                if (name.length != length) continue;
+                int i = 0;
+                while (i < length && buffer.get(from + i) == name[i]) i++;
+                if (i == length) return ordinal;
+            }
+            throw new IllegalArgumentException();
+        }
+    }
+}
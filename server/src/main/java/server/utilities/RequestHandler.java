@@ -3,24 +3,80 @@ package server.utilities;
 import common.interaction.Request;
 import common.interaction.Response;
 import common.interaction.ResponseCode;
+import common.interaction.ScriptBatch;
+
+import java.io.IOException;
 
 public class RequestHandler {
     CommandManager commandManager;
+    CollectionManager collectionManager;
     private boolean serverExitStatus;
     public RequestHandler(CommandManager commandManager){
+        this(commandManager, null);
+    }
+
+    /**
+     * Constructor
+     * @param commandManager Command manager
+     * @param collectionManager Collection manager, which changes are written to the log before answering, or null
+     */
+    public RequestHandler(CommandManager commandManager, CollectionManager collectionManager){
         this.commandManager = commandManager;
+        this.collectionManager = collectionManager;
     }
+
+    /**
+     * Execute request. Every request writes into its own ResponseOutputer and may run
+     * in parallel with others, the collection manager locks the collection per command.
+     * A script batch holds the write lock for all its commands.
+     * The answer is given after the changes are in the log; waiting for the disk happens
+     * outside the lock, so changes of several requests are forced together.
+     * @param request Request from client
+     * @return Response to client
+     */
     public Response handle(Request request){
+        return handle(request, null);
+    }
+
+    /**
+     * Execute request, sending a long output in parts before the response.
+     * A script batch is answered with one response: it runs under the write lock,
+     * which must not wait for a slow client to read the parts.
+     * @param request Request from client
+     * @param chunkSink Receiver of CHUNK responses to the request, or null to answer with one response
+     * @return Last response to client
+     */
+    public Response handle(Request request, ResponseSink chunkSink){
         ResponseCode responseCode;
+        boolean exclusive = collectionManager != null && request.getCommandObjectArgument() instanceof ScriptBatch;
+        ResponseOutputer responseOutputer = ResponseOutputer.acquire(chunkSink == null || exclusive ? null
+                : chunk -> chunkSink.send(new Response(ResponseCode.CHUNK, chunk, request.getId())));
+        if(exclusive)
+            responseCode = collectionManager.callExclusively(() -> execute(request, responseOutputer));
+        else responseCode = execute(request, responseOutputer);
+        if(collectionManager != null && !collectionManager.syncLog()){
+            responseOutputer.append("Изменения не сохранены в журнал!");
+            responseCode = ResponseCode.ERROR;
+        }
+        return new Response(responseCode,responseOutputer.getOutPut(),request.getId());
+    }
+
+    /**
+     * Receiver of responses, which are sent before the request is finished
+     */
+    public interface ResponseSink {
+        void send(Response response) throws IOException;
+    }
+
+    private ResponseCode execute(Request request, ResponseOutputer responseOutputer){
         if((request.getCommandName()[0].equals("exit_server"))){
-            commandManager.executeCommand(request.getCommandName(),request.getCommandObjectArgument());
-            responseCode = ResponseCode.SERVER_EXIT;
+            commandManager.executeCommand(request.getCommandName(),request.getCommandObjectArgument(),responseOutputer);
+            return ResponseCode.SERVER_EXIT;
         }
-        else if(commandManager.executeCommand(request.getCommandName(),request.getCommandObjectArgument())){
-            responseCode = ResponseCode.OK;
+        else if(commandManager.executeCommand(request.getCommandName(),request.getCommandObjectArgument(),responseOutputer)){
+            return ResponseCode.OK;
         } else{
-            responseCode = ResponseCode.ERROR;
+            return ResponseCode.ERROR;
         }
-        return new Response(responseCode,ResponseOutputer.getOutPut());
     }
 }
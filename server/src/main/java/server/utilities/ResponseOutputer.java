@@ -1,17 +1,89 @@
 package server.utilities;
 
+import java.io.IOException;
+
+/**
+ * Output of one request. Every worker thread reuses its own instance,
+ * so building a response does not allocate a new buffer per request.
+ * With a chunk sink the output is sent in parts as it grows, so a long output
+ * does not have to fit in memory.
+ */
 public class ResponseOutputer {
-    private static StringBuilder stringBuilder = new StringBuilder();
-    public static void append(Object toOut){
+    /**
+     * Output is sent to the chunk sink, when it grows to this size
+     */
+    public static final int CHUNK_SIZE = 32 * 1024;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<ResponseOutputer> outputers = ThreadLocal.withInitial(ResponseOutputer::new);
+    private StringBuilder stringBuilder = new StringBuilder(INITIAL_CAPACITY);
+    private ChunkSink chunkSink;
+    private boolean broken;
+
+    /**
+     * Receiver of the parts of a long output
+     */
+    public interface ChunkSink {
+        void send(String chunk) throws IOException;
+    }
+
+    /**
+     * @return Empty outputer of the current thread
+     */
+    public static ResponseOutputer acquire(){
+        return acquire(null);
+    }
+
+    /**
+     * @param chunkSink Receiver of parts of the output, or null to keep the whole output
+     * @return Empty outputer of the current thread
+     */
+    public static ResponseOutputer acquire(ChunkSink chunkSink){
+        ResponseOutputer responseOutputer = outputers.get();
+        responseOutputer.stringBuilder.setLength(0);
+        responseOutputer.chunkSink = chunkSink;
+        responseOutputer.broken = false;
+        return responseOutputer;
+    }
+
+    public void append(Object toOut){
+        if(broken) return;
         stringBuilder.append(toOut).append("\n");
+        if(chunkSink != null && stringBuilder.length() >= CHUNK_SIZE) sendChunk();
+    }
+
+    /**
+     * Send the output collected so far. If the sink fails, the rest of the output is dropped.
+     */
+    private void sendChunk(){
+        String chunk = getOutPut();
+        try{
+            chunkSink.send(chunk);
+        }catch (IOException err){
+            broken = true;
+        }
     }
-    public static String getString(){
+
+    /**
+     * @return true, if the chunk sink failed and the rest of the output is dropped
+     */
+    public boolean isBroken(){
+        return broken;
+    }
+
+    public String getString(){
         return stringBuilder.toString();
     }
-    public static String getOutPut(){
-        stringBuilder.delete(stringBuilder.length()-1,stringBuilder.length());
-        String toReturn = stringBuilder.toString();
-        stringBuilder.delete(0,stringBuilder.length());
+
+    /**
+     * @return Output without last line break, outputer is cleared afterwards
+     */
+    public String getOutPut(){
+        int length = stringBuilder.length();
+        if(length > 0) length--;
+        String toReturn = stringBuilder.substring(0, length);
+        if(stringBuilder.capacity() > MAX_RETAINED_CAPACITY) stringBuilder = new StringBuilder(INITIAL_CAPACITY);
+        else stringBuilder.setLength(0);
         return toReturn;
     }
 }
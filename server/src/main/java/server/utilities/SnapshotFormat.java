@@ -0,0 +1,299 @@
+package server.utilities;
+
+import common.datas.*;
+import server.customCollection.CustomTreeMap;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the collection.
+ * <pre>
+ * magic, version, lastId, size,
+ * enum name tables (ordinals are mapped back by name, so reordering constants is safe),
+ * entries in key order, CRC32 of everything before it.
+ * </pre>
+ * Numbers are zigzag varints, dates are epoch days, enums are ordinals and
+ * every distinct string is written once, as its UTF-8 length and bytes, and then referenced by its number.
+ */
+public final class SnapshotFormat {
+    private static final int MAGIC = 0x53475331;
+    private static final int VERSION = 1;
+    /**
+     * Sizes read from the file are not trusted for allocation beyond this, until the data is really read
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Write collection in key order
+     * @param lastId last used id
+     */
+    public static void write(OutputStream outputStream, Map<String, StudyGroup> collection, long lastId) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(outputStream, new CRC32());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 64 * 1024));
+        out.writeInt(MAGIC);
+        writeVarLong(out, VERSION);
+        writeVarLong(out, lastId);
+        writeVarLong(out, collection.size());
+        writeEnum(out, FormOfEducation.values());
+        writeEnum(out, Semester.values());
+        writeEnum(out, Country.values());
+        Writer writer = new Writer(out);
+        for (Map.Entry<String, StudyGroup> entry : collection.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeStudyGroup(entry.getValue());
+        }
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+    }
+
+    /**
+     * Read collection, which was written by write
+     * @return collection and last used id
+     */
+    public static Snapshot read(InputStream inputStream) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(inputStream, 64 * 1024), new CRC32());
+        DataInputStream in = new DataInputStream(checked);
+        if (in.readInt() != MAGIC) throw new StreamCorruptedException("Файл не является снимком коллекции");
+        long version = readVarLong(in);
+        if (version != VERSION) throw new StreamCorruptedException("Неподдерживаемая версия снимка: " + version);
+        long lastId = readVarLong(in);
+        long count = readVarLong(in);
+        if (count < 0 || count > Integer.MAX_VALUE) throw new StreamCorruptedException("Неверный размер снимка: " + count);
+        int size = (int) count;
+        FormOfEducation[] formsOfEducation = readEnum(in, FormOfEducation.class);
+        Semester[] semesters = readEnum(in, Semester.class);
+        Country[] countries = readEnum(in, Country.class);
+        Reader reader = new Reader(in, formsOfEducation, semesters, countries);
+        List<Map.Entry<String, StudyGroup>> entries = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < size; i++) {
+            String key = reader.readString();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(key, reader.readStudyGroup()));
+        }
+        long checksum = checked.getChecksum().getValue();
+        if (in.readLong() != checksum) throw new StreamCorruptedException("Контрольная сумма снимка не совпадает");
+        CustomTreeMap<String, StudyGroup> collection = new CustomTreeMap<>();
+        collection.buildFromSorted(size, entries.iterator());
+        return new Snapshot(collection, lastId);
+    }
+
+    /**
+     * Collection with last used id
+     */
+    public static final class Snapshot {
+        private final CustomTreeMap<String, StudyGroup> collection;
+        private final long lastId;
+
+        Snapshot(CustomTreeMap<String, StudyGroup> collection, long lastId) {
+            this.collection = collection;
+            this.lastId = lastId;
+        }
+
+        public CustomTreeMap<String, StudyGroup> getCollection() {
+            return collection;
+        }
+
+        public long getLastId() {
+            return lastId;
+        }
+    }
+
+    static void writeEnum(DataOutputStream out, Enum<?>[] values) throws IOException {
+        writeVarLong(out, values.length);
+        for (Enum<?> value : values) out.writeUTF(value.name());
+    }
+
+    static <E extends Enum<E>> E[] readEnum(DataInputStream in, Class<E> type) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > 255) throw new StreamCorruptedException("Неверное число значений " + type.getSimpleName());
+        @SuppressWarnings("unchecked")
+        E[] values = (E[]) java.lang.reflect.Array.newInstance(type, (int) count);
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            try {
+                values[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException err) {
+                throw new StreamCorruptedException("Неизвестное значение " + type.getSimpleName() + ": " + name);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Write the string as its UTF-8 length and bytes, so its length is not limited
+     */
+    static void writeUtf8(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readUtf8(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) throw new StreamCorruptedException("Неверная длина строки");
+        if (length <= MAX_INITIAL_CAPACITY) {
+            byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_INITIAL_CAPACITY);
+        byte[] chunk = new byte[MAX_INITIAL_CAPACITY];
+        for (long left = length; left > 0; left -= chunk.length) {
+            int count = (int) Math.min(left, chunk.length);
+            in.readFully(chunk, 0, count);
+            bytes.write(chunk, 0, count);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new StreamCorruptedException("Слишком длинное число");
+    }
+
+    /**
+     * Writes StudyGroup fields, remembers written strings
+     */
+    static final class Writer {
+        private final DataOutput out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        /**
+         * 0 - null, number of a known string, or the next number followed by the new string
+         */
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(out, 0);
+                return;
+            }
+            Integer number = strings.get(value);
+            if (number != null) {
+                writeVarLong(out, number);
+                return;
+            }
+            number = strings.size() + 1;
+            strings.put(value, number);
+            writeVarLong(out, number);
+            writeUtf8(out, value);
+        }
+
+        private void writeEnum(Enum<?> value) throws IOException {
+            out.writeByte(value == null ? 0 : value.ordinal() + 1);
+        }
+
+        private void writeNullableLong(Long value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) writeVarLong(out, value);
+        }
+
+        void writeStudyGroup(StudyGroup studyGroup) throws IOException {
+            writeVarLong(out, studyGroup.getId());
+            writeString(studyGroup.getName());
+            writeVarLong(out, studyGroup.getCoordinates().getX());
+            writeVarLong(out, studyGroup.getCoordinates().getY());
+            writeVarLong(out, studyGroup.getCreationDate().toEpochDay());
+            writeNullableLong(studyGroup.getStudentsCount());
+            writeVarLong(out, studyGroup.getTransferredStudents());
+            writeEnum(studyGroup.getFormOfEducation());
+            writeEnum(studyGroup.getSemesterEnum());
+            Person groupAdmin = studyGroup.getGroupAdmin();
+            writeString(groupAdmin.getName());
+            writeString(groupAdmin.getPassportID());
+            writeEnum(groupAdmin.getCountry());
+            Location location = groupAdmin.getLocation();
+            out.writeBoolean(location.getX() != null);
+            if (location.getX() != null) out.writeFloat(location.getX());
+            writeNullableLong(location.getY());
+            writeVarLong(out, location.getZ());
+            writeString(location.getName());
+        }
+    }
+
+    /**
+     * Reads StudyGroup fields written by Writer
+     */
+    static final class Reader {
+        private final DataInput in;
+        private final List<String> strings = new ArrayList<>();
+        private final FormOfEducation[] formsOfEducation;
+        private final Semester[] semesters;
+        private final Country[] countries;
+
+        Reader(DataInput in, FormOfEducation[] formsOfEducation, Semester[] semesters, Country[] countries) {
+            this.in = in;
+            this.formsOfEducation = formsOfEducation;
+            this.semesters = semesters;
+            this.countries = countries;
+        }
+
+        String readString() throws IOException {
+            long number = readVarLong(in);
+            if (number == 0) return null;
+            if (number <= strings.size()) return strings.get((int) number - 1);
+            if (number != strings.size() + 1) throw new StreamCorruptedException("Неверная ссылка на строку");
+            String value = readUtf8(in);
+            strings.add(value);
+            return value;
+        }
+
+        private <E> E readEnum(E[] values) throws IOException {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal == 0) return null;
+            if (ordinal > values.length) throw new StreamCorruptedException("Неверное значение перечисления");
+            return values[ordinal - 1];
+        }
+
+        private Long readNullableLong() throws IOException {
+            return in.readBoolean() ? readVarLong(in) : null;
+        }
+
+        StudyGroup readStudyGroup() throws IOException {
+            long id = readVarLong(in);
+            String name = readString();
+            Coordinates coordinates = new Coordinates((int) readVarLong(in), readVarLong(in));
+            LocalDate creationDate = LocalDate.ofEpochDay(readVarLong(in));
+            Long studentsCount = readNullableLong();
+            long transferredStudents = readVarLong(in);
+            FormOfEducation formOfEducation = readEnum(formsOfEducation);
+            Semester semester = readEnum(semesters);
+            String adminName = readString();
+            String passportID = readString();
+            Country country = readEnum(countries);
+            Float x = in.readBoolean() ? in.readFloat() : null;
+            Long y = readNullableLong();
+            int z = (int) readVarLong(in);
+            String locationName = readString();
+            Location location = new Location(x, y, z, locationName);
+            Person groupAdmin = new Person(adminName, passportID, country, location);
+            return new StudyGroup(id, name, coordinates, creationDate, studentsCount, transferredStudents,
+                    formOfEducation, semester, groupAdmin);
+        }
+    }
+}
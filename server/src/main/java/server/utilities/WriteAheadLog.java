@@ -0,0 +1,307 @@
+package server.utilities;
+
+import common.datas.Country;
+import common.datas.FormOfEducation;
+import common.datas.Semester;
+import common.datas.StudyGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.customCollection.CustomTreeMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of collection changes.
+ * <p>
+ * Every change is appended as a record with the new state of one key (put, remove) or clear,
+ * so replaying a record twice gives the same result. Records are buffered in memory and
+ * written by sync(): the thread, which comes first, writes and forces everything appended
+ * so far, threads waiting behind it are usually covered by the same write (group commit).
+ * <p>
+ * The log is split into numbered segments. Before a checkpoint a new segment is started;
+ * after the checkpoint is written the older segments are deleted.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x53474C31;
+    private static final int VERSION = 1;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final String SEGMENT_SUFFIX = ".wal.";
+    private final Path directory;
+    private final String prefix;
+    private final Object flushLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+    private long appended;
+    private volatile long durable;
+    private volatile IOException failure;
+    private long segment;
+    private FileChannel channel;
+    private long maxReplayedId = Long.MIN_VALUE;
+    public final Logger LOG
+            = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    /**
+     * Constructor
+     * @param path Path of the collection file, segments are kept next to it
+     */
+    public WriteAheadLog(String path) {
+        Path file = Paths.get(path).toAbsolutePath();
+        this.directory = file.getParent();
+        this.prefix = file.getFileName() + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * Apply all segments to the collection loaded from the last checkpoint and start a new segment
+     * @param collection collection from file
+     * @return number of applied records
+     */
+    public int recover(CustomTreeMap<String, StudyGroup> collection) throws IOException {
+        int applied = 0;
+        TreeMap<Long, Path> segments = listSegments();
+        for (Path path : segments.values()) {
+            applied += replay(path, collection);
+        }
+        segment = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        openSegment();
+        return applied;
+    }
+
+    /**
+     * @return greatest id met while replaying, or Long.MIN_VALUE
+     */
+    public long getMaxReplayedId() {
+        return maxReplayedId;
+    }
+
+    public void logPut(String key, StudyGroup studyGroup) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            SnapshotFormat.Writer writer = new SnapshotFormat.Writer(out);
+            out.writeByte(PUT);
+            writer.writeString(key);
+            writer.writeStudyGroup(studyGroup);
+            append(bytes.toByteArray());
+        } catch (IOException cannotHappen) {
+        }
+    }
+
+    public void logRemove(String key) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(REMOVE);
+            new SnapshotFormat.Writer(out).writeString(key);
+            append(bytes.toByteArray());
+        } catch (IOException cannotHappen) {
+        }
+    }
+
+    public void logClear() {
+        append(new byte[]{CLEAR});
+    }
+
+    /**
+     * @return true if there are records, which are not forced to disk yet
+     */
+    public synchronized boolean hasPending() {
+        return appended > durable;
+    }
+
+    /**
+     * Wait until everything appended before the call is on disk.
+     * If a write fails, its records are kept and written again by the next sync.
+     * @throws IOException if the write failed, or an earlier failed write could not be undone
+     */
+    public void sync() throws IOException {
+        if (failure != null) throw new IOException("Журнал изменений недоступен", failure);
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        if (durable >= target) return;
+        synchronized (flushLock) {
+            if (failure != null) throw new IOException("Журнал изменений недоступен", failure);
+            if (durable >= target) return;
+            ByteArrayOutputStream toWrite;
+            long upTo;
+            synchronized (this) {
+                toWrite = pending;
+                upTo = appended;
+                pending = new ByteArrayOutputStream(Math.max(4096, Math.min(toWrite.size(), 1 << 20)));
+            }
+            byte[] records = toWrite.toByteArray();
+            long size = channel.size();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(records);
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            } catch (IOException err) {
+                restore(records, size);
+                throw err;
+            }
+            durable = upTo;
+        }
+    }
+
+    /**
+     * Undo a failed write: cut the segment back to its size before the write and put the records
+     * in front of the ones appended meanwhile. If the segment cannot be cut, it may end with a part
+     * of a record, so the log fails every later sync.
+     * @param records records of the failed write
+     * @param size size of the segment before the write
+     */
+    private void restore(byte[] records, long size) {
+        synchronized (this) {
+            byte[] appendedMeanwhile = pending.toByteArray();
+            pending = new ByteArrayOutputStream(records.length + appendedMeanwhile.length);
+            pending.write(records, 0, records.length);
+            pending.write(appendedMeanwhile, 0, appendedMeanwhile.length);
+        }
+        try {
+            channel.truncate(size);
+        } catch (IOException err) {
+            failure = err;
+            LOG.error("Не удалось отменить неудачную запись в журнал изменений");
+        }
+    }
+
+    /**
+     * Force pending records and continue in a new segment
+     * @return number of the new segment, all older segments are covered by a checkpoint taken after this call
+     */
+    public long rotate() throws IOException {
+        synchronized (flushLock) {
+            sync();
+            synchronized (this) {
+                channel.close();
+                segment++;
+                openSegment();
+                return segment;
+            }
+        }
+    }
+
+    /**
+     * Delete segments, which are covered by a written checkpoint
+     * @param firstKept number returned by rotate before the checkpoint
+     */
+    public void deleteSegmentsBefore(long firstKept) {
+        try {
+            for (Path path : listSegments().headMap(firstKept).values()) Files.deleteIfExists(path);
+        } catch (IOException err) {
+            LOG.error("Не удалось удалить старые сегменты журнала");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    private synchronized void append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        DataOutputStream out = new DataOutputStream(pending);
+        try {
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        } catch (IOException cannotHappen) {
+        }
+        appended++;
+    }
+
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%06d", prefix, segment));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(header);
+            out.writeInt(MAGIC);
+            SnapshotFormat.writeVarLong(out, VERSION);
+            SnapshotFormat.writeEnum(out, FormOfEducation.values());
+            SnapshotFormat.writeEnum(out, Semester.values());
+            SnapshotFormat.writeEnum(out, Country.values());
+            channel.write(ByteBuffer.wrap(header.toByteArray()));
+            channel.force(true);
+        }
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path path : stream) {
+                try {
+                    segments.put(Long.parseLong(path.getFileName().toString().substring(prefix.length())), path);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Apply records of one segment. A torn record at the end (crash during write) ends the segment,
+     * the segment is cut there so that new records are not appended after garbage.
+     */
+    private int replay(Path path, CustomTreeMap<String, StudyGroup> collection) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        FormOfEducation[] formsOfEducation;
+        Semester[] semesters;
+        Country[] countries;
+        try {
+            if (in.readInt() != MAGIC || SnapshotFormat.readVarLong(in) != VERSION)
+                throw new StreamCorruptedException();
+            formsOfEducation = SnapshotFormat.readEnum(in, FormOfEducation.class);
+            semesters = SnapshotFormat.readEnum(in, Semester.class);
+            countries = SnapshotFormat.readEnum(in, Country.class);
+        } catch (IOException err) {
+            LOG.error("Сегмент журнала " + path.getFileName() + " поврежден и пропущен");
+            return 0;
+        }
+        int applied = 0;
+        int position = data.length - in.available();
+        while (position + 8 <= data.length) {
+            ByteBuffer header = ByteBuffer.wrap(data, position, 8);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + 8 + length > data.length) break;
+            CRC32 crc = new CRC32();
+            crc.update(data, position + 8, length);
+            if ((int) crc.getValue() != checksum) break;
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(data, position + 8, length));
+            SnapshotFormat.Reader reader = new SnapshotFormat.Reader(record, formsOfEducation, semesters, countries);
+            byte type = record.readByte();
+            if (type == PUT) {
+                String key = reader.readString();
+                StudyGroup studyGroup = reader.readStudyGroup();
+                collection.put(key, studyGroup);
+                maxReplayedId = Math.max(maxReplayedId, studyGroup.getId());
+            } else if (type == REMOVE) {
+                collection.remove(reader.readString());
+            } else if (type == CLEAR) {
+                collection.clear();
+            }
+            applied++;
+            position += 8 + length;
+        }
+        if (position < data.length) {
+            LOG.error("Неполная запись в конце сегмента журнала " + path.getFileName() + " отброшена");
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(position);
+            }
+        }
+        return applied;
+    }
+}
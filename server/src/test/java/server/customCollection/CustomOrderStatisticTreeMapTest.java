@@ -0,0 +1,117 @@
+package server.customCollection;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CustomOrderStatisticTreeMapTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        for (long seed = 1; seed <= 3; seed++) {
+            new RandomOperations(new CustomOrderStatisticTreeMap<>(), seed, 100).run(20000);
+            new RandomOperations(new CustomOrderStatisticTreeMap<>(), seed, 10000).run(50000);
+        }
+    }
+
+    @Test
+    public void rankAndSelectMatchTreeMap() {
+        for (long seed = 1; seed <= 5; seed++) {
+            CustomOrderStatisticTreeMap<Integer, Integer> map = new CustomOrderStatisticTreeMap<>();
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            Random random = new Random(seed);
+            for (int i = 0; i < 20000; i++) {
+                Integer key = random.nextInt(3000);
+                int value = i;
+                switch (random.nextInt(8)) {
+                    case 0: case 1:
+                        map.put(key, value);
+                        expected.put(key, value);
+                        break;
+                    case 2:
+                        map.remove(key);
+                        expected.remove(key);
+                        break;
+                    case 3:
+                        map.computeIfAbsent(key, k -> value);
+                        expected.computeIfAbsent(key, k -> value);
+                        break;
+                    case 4:
+                        // removes the entry when the old value is odd
+                        map.computeIfPresent(key, (k, old) -> old % 2 == 0 ? value : null);
+                        expected.computeIfPresent(key, (k, old) -> old % 2 == 0 ? value : null);
+                        break;
+                    case 5:
+                        map.merge(key, value, (old, given) -> old % 3 == 0 ? null : given);
+                        expected.merge(key, value, (old, given) -> old % 3 == 0 ? null : given);
+                        break;
+                    case 6:
+                        map.compute(key, (k, old) -> old == null ? value : null);
+                        expected.compute(key, (k, old) -> old == null ? value : null);
+                        break;
+                    default:
+                        map.pollFirstEntry();
+                        expected.pollFirstEntry();
+                }
+                if (i % 500 == 0) checkPositions(map, expected, random, "seed " + seed + ", operation " + i);
+            }
+            map.headMap(1000).clear();
+            expected.headMap(1000).clear();
+            checkPositions(map, expected, random, "seed " + seed + ", after clearing a head map");
+        }
+    }
+
+    @Test
+    public void copiedMapHasPositions() {
+        TreeMap<Integer, Integer> source = new TreeMap<>();
+        for (int i = 0; i < 10000; i++) source.put(i * 2, i);
+        CustomOrderStatisticTreeMap<Integer, Integer> map = new CustomOrderStatisticTreeMap<>(source);
+        checkPositions(map, source, new Random(1), "copy");
+        assertEquals(5000, map.rank(10000));
+        assertEquals(5001, map.rank(10001));
+        assertEquals(Integer.valueOf(19998), map.select(9999).getKey());
+    }
+
+    @Test
+    public void entriesFromPastTheEnd() {
+        CustomOrderStatisticTreeMap<Integer, Integer> map = new CustomOrderStatisticTreeMap<>();
+        for (int i = 0; i < 10; i++) map.put(i, i);
+        assertTrue(map.entriesFrom(10, 5).isEmpty());
+        assertTrue(map.entriesFrom(Integer.MAX_VALUE, 5).isEmpty());
+        assertEquals(2, map.entriesFrom(8, 5).size());
+        assertTrue(map.entriesFrom(3, 0).isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void selectPastTheEnd() {
+        CustomOrderStatisticTreeMap<Integer, Integer> map = new CustomOrderStatisticTreeMap<>();
+        map.put(1, 1);
+        map.select(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeOffset() {
+        new CustomOrderStatisticTreeMap<Integer, Integer>().entriesFrom(-1, 1);
+    }
+
+    private static void checkPositions(CustomOrderStatisticTreeMap<Integer, Integer> map, TreeMap<Integer, Integer> expected,
+                                       Random random, String when) {
+        RandomOperations.assertSameEntries(when, expected, map);
+        List<Integer> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(when + ": select " + i, keys.get(i), map.select(i).getKey());
+            assertEquals(when + ": rank of " + keys.get(i), i, map.rank(keys.get(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Integer key = random.nextInt(4000) - 500;
+            assertEquals(when + ": rank of " + key, expected.headMap(key).size(), map.rank(key));
+            int offset = random.nextInt(keys.size() + 10);
+            int limit = random.nextInt(200);
+            List<Integer> page = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : map.entriesFrom(offset, limit)) page.add(entry.getKey());
+            assertEquals(when + ": page at " + offset, keys.subList(Math.min(offset, keys.size()), Math.min(offset + limit, keys.size())), page);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package server.customCollection;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CustomPersistentTreeMapTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        for (long seed = 1; seed <= 5; seed++) {
+            new RandomOperations(new CustomPersistentTreeMap<>(), seed, 100).run(20000);
+            new RandomOperations(new CustomPersistentTreeMap<>(), seed, 10000).run(50000);
+        }
+    }
+
+    @Test
+    public void snapshotsKeepTheirEntries() {
+        CustomPersistentTreeMap<Integer, Integer> map = new CustomPersistentTreeMap<>();
+        Random random = new Random(3);
+        List<CustomPersistentTreeMap<Integer, Integer>> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) map.remove(key);
+            else map.put(key, i);
+            if (i % 2000 == 0) {
+                snapshots.add(map.snapshot());
+                expected.add(new TreeMap<>(map));
+            }
+        }
+        map.clear();
+        for (int i = 0; i < snapshots.size(); i++)
+            RandomOperations.assertSameEntries("snapshot " + i, expected.get(i), snapshots.get(i));
+    }
+
+    @Test
+    public void changesOfSnapshotAreNotSeenByTheMap() {
+        CustomPersistentTreeMap<Integer, Integer> map = new CustomPersistentTreeMap<>();
+        for (int i = 0; i < 1000; i++) map.put(i, i);
+        CustomPersistentTreeMap<Integer, Integer> snapshot = map.snapshot();
+        for (int i = 0; i < 1000; i += 2) snapshot.remove(i);
+        snapshot.put(5000, 5000);
+        assertEquals(1000, map.size());
+        assertNull(map.get(5000));
+        assertEquals(501, snapshot.size());
+    }
+
+    @Test
+    public void copiesSortedMap() {
+        TreeMap<Integer, Integer> source = new TreeMap<>(Comparator.reverseOrder());
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) source.put(random.nextInt(), i);
+        CustomPersistentTreeMap<Integer, Integer> map = new CustomPersistentTreeMap<>(source);
+        assertSame(source.comparator(), map.comparator());
+        RandomOperations.assertSameEntries("copy", source, map);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void entriesAreImmutable() {
+        CustomPersistentTreeMap<Integer, Integer> map = new CustomPersistentTreeMap<>();
+        map.put(1, 1);
+        map.firstEntry().setValue(2);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValue() {
+        new CustomPersistentTreeMap<Integer, Integer>().put(1, null);
+    }
+}
@@ -0,0 +1,77 @@
+package server.customCollection;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class CustomSkipListMapTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        for (long seed = 1; seed <= 5; seed++) {
+            new RandomOperations(new CustomSkipListMap<>(), seed, 100).run(20000);
+            new RandomOperations(new CustomSkipListMap<>(), seed, 10000).run(50000);
+        }
+    }
+
+    @Test
+    public void copiesSortedMap() {
+        TreeMap<Integer, Integer> source = new TreeMap<>(Comparator.reverseOrder());
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) source.put(random.nextInt(), i);
+        CustomSkipListMap<Integer, Integer> map = new CustomSkipListMap<>(source);
+        assertSame(source.comparator(), map.comparator());
+        RandomOperations.assertSameEntries("copy", source, map);
+    }
+
+    @Test
+    public void emptyMap() {
+        CustomSkipListMap<Integer, Integer> map = new CustomSkipListMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.firstEntry());
+        assertNull(map.pollLastEntry());
+        assertNull(map.ceilingKey(0));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstKeyOfEmptyMap() {
+        new CustomSkipListMap<Integer, Integer>().firstKey();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullKey() {
+        new CustomSkipListMap<Integer, Integer>().put(null, 1);
+    }
+
+    @Test
+    public void concurrentWritersKeepEveryKey() throws Exception {
+        int threads = 4;
+        int keysPerThread = 20000;
+        CustomSkipListMap<Integer, Integer> map = new CustomSkipListMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < keysPerThread; i++) {
+                        int key = i * threads + thread;
+                        map.put(key, key);
+                        if (i % 2 == 1) map.remove(key);
+                        map.ceilingKey(key);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int t = 0; t < threads; t++)
+            for (int i = 0; i < keysPerThread; i += 2) expected.put(i * threads + t, i * threads + t);
+        RandomOperations.assertSameEntries("after concurrent writes", expected, map);
+    }
+}
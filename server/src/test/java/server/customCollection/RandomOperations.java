@@ -0,0 +1,129 @@
+package server.customCollection;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the same random operations on a map and on java.util.TreeMap and compares every result.
+ */
+final class RandomOperations {
+    private final NavigableMap<Integer, Integer> map;
+    private final TreeMap<Integer, Integer> expected = new TreeMap<>();
+    private final Random random;
+    private final int keys;
+
+    /**
+     * @param map empty map under test
+     * @param seed seed of the operations, printed in failure messages
+     * @param keys keys are taken from 0 until keys
+     */
+    RandomOperations(NavigableMap<Integer, Integer> map, long seed, int keys) {
+        this.map = map;
+        this.random = new Random(seed);
+        this.keys = keys;
+    }
+
+    /**
+     * Run random point operations, comparing the whole map from time to time
+     */
+    void run(int operations) {
+        for (int i = 0; i < operations; i++) {
+            step(i);
+            if (i % 1000 == 0) checkContents("after " + i + " operations");
+        }
+        checkContents("at the end");
+        checkViews();
+    }
+
+    private void step(int value) {
+        Integer key = random.nextInt(keys);
+        String operation = "operation " + value + " on key " + key;
+        switch (random.nextInt(14)) {
+            case 0: case 1: case 2:
+                assertEquals(operation, expected.put(key, value), map.put(key, value));
+                break;
+            case 3: case 4:
+                assertEquals(operation, expected.remove(key), map.remove(key));
+                break;
+            case 5:
+                assertEquals(operation, expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                break;
+            case 6:
+                assertEquals(operation, expected.replace(key, value), map.replace(key, value));
+                break;
+            case 7:
+                Integer old = expected.get(key);
+                assertEquals(operation, expected.remove(key, old), map.remove(key, old));
+                break;
+            case 8:
+                assertEquals(operation, expected.get(key), map.get(key));
+                assertEquals(operation, expected.containsKey(key), map.containsKey(key));
+                break;
+            case 9:
+                assertEquals(operation, expected.floorKey(key), map.floorKey(key));
+                assertEquals(operation, expected.ceilingKey(key), map.ceilingKey(key));
+                break;
+            case 10:
+                assertEquals(operation, expected.lowerKey(key), map.lowerKey(key));
+                assertEquals(operation, expected.higherKey(key), map.higherKey(key));
+                break;
+            case 11:
+                assertEquals(operation, keyOf(expected.firstEntry()), keyOf(map.firstEntry()));
+                assertEquals(operation, keyOf(expected.lastEntry()), keyOf(map.lastEntry()));
+                break;
+            case 12:
+                if (random.nextBoolean()) assertEquals(operation, keyOf(expected.pollFirstEntry()), keyOf(map.pollFirstEntry()));
+                else assertEquals(operation, keyOf(expected.pollLastEntry()), keyOf(map.pollLastEntry()));
+                break;
+            default:
+                int from = random.nextInt(keys);
+                int to = from + random.nextInt(keys / 4 + 1);
+                boolean fromInclusive = random.nextBoolean();
+                boolean toInclusive = random.nextBoolean();
+                assertSameEntries(operation, expected.subMap(from, fromInclusive, to, toInclusive),
+                        map.subMap(from, fromInclusive, to, toInclusive));
+        }
+    }
+
+    private static Integer keyOf(Map.Entry<Integer, Integer> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    /**
+     * Compare size, equality and iteration order with the expected map
+     */
+    void checkContents(String when) {
+        assertSameEntries(when, expected, map);
+        assertEquals(when, expected, map);
+        assertEquals(when, expected.hashCode(), map.hashCode());
+    }
+
+    private void checkViews() {
+        int middle = keys / 2;
+        assertSameEntries("head map", expected.headMap(middle, false), map.headMap(middle, false));
+        assertSameEntries("tail map", expected.tailMap(middle, true), map.tailMap(middle, true));
+        assertSameEntries("descending map", expected.descendingMap(), map.descendingMap());
+        assertSameEntries("descending sub map", expected.descendingMap().subMap(middle, true, keys / 4, false),
+                map.descendingMap().subMap(middle, true, keys / 4, false));
+        assertEquals("descending keys", new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(map.descendingKeySet()));
+
+        expected.headMap(keys / 4).clear();
+        map.headMap(keys / 4).clear();
+        checkContents("after clearing a head map");
+        for (Iterator<Integer> iterator = map.keySet().iterator(); iterator.hasNext(); ) {
+            Integer key = iterator.next();
+            if (key % 3 == 0) {
+                iterator.remove();
+                expected.remove(key);
+            }
+        }
+        checkContents("after removing through the iterator");
+    }
+
+    static void assertSameEntries(String message, SortedMap<Integer, Integer> expected, SortedMap<Integer, Integer> actual) {
+        assertEquals(message + ": size", expected.size(), actual.size());
+        assertEquals(message + ": keys", new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        assertEquals(message + ": values", new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+    }
+}
@@ -0,0 +1,136 @@
+package server.indexes;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoaringBitmapTest {
+
+    private static BitSet valuesOf(RoaringBitmap bitmap) {
+        BitSet values = new BitSet();
+        int[] previous = {-1};
+        bitmap.forEach(value -> {
+            assertTrue("values must ascend: " + previous[0] + ", " + value, value > previous[0]);
+            previous[0] = value;
+            values.set(value);
+        });
+        return values;
+    }
+
+    private static void assertSameValues(String message, BitSet expected, RoaringBitmap bitmap) {
+        assertEquals(message, expected, valuesOf(bitmap));
+        assertEquals(message, expected.cardinality(), bitmap.cardinality());
+        assertEquals(message, expected.isEmpty(), bitmap.isEmpty());
+    }
+
+    /**
+     * Add random values below universe, the density decides whether containers become arrays or bitsets
+     */
+    private static void fill(RoaringBitmap bitmap, BitSet expected, Random random, int universe, double density) {
+        int count = (int) (universe * density) + 1;
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(universe);
+            bitmap.add(value);
+            expected.set(value);
+        }
+    }
+
+    @Test
+    public void randomValuesMatchBitSet() {
+        Random random = new Random(7);
+        int[] universes = {100, 70000, 300000, 1 << 20};
+        double[] densities = {0.001, 0.05, 0.5, 0.95};
+        for (int round = 0; round < 32; round++) {
+            int universe = universes[round % universes.length];
+            String message = "round " + round;
+            RoaringBitmap bitmap = new RoaringBitmap();
+            BitSet expected = new BitSet();
+            fill(bitmap, expected, random, universe, densities[random.nextInt(densities.length)]);
+            assertSameValues(message, expected, bitmap);
+            for (int i = 0; i < 2000; i++) {
+                int value = random.nextInt(universe);
+                assertEquals(message, expected.get(value), bitmap.contains(value));
+            }
+            for (int i = 0; i < universe / 2; i++) {
+                int value = random.nextInt(universe);
+                bitmap.remove(value);
+                expected.clear(value);
+            }
+            assertSameValues(message + " after removals", expected, bitmap);
+            for (int value = expected.nextSetBit(0); value >= 0; value = expected.nextSetBit(value + 1))
+                bitmap.remove(value);
+            assertTrue(message, bitmap.isEmpty());
+            assertEquals(message, 0, bitmap.cardinality());
+        }
+    }
+
+    @Test
+    public void orAndAndMatchBitSet() {
+        Random random = new Random(3);
+        for (int round = 0; round < 16; round++) {
+            int universe = round % 2 == 0 ? 200000 : 5000;
+            RoaringBitmap left = new RoaringBitmap();
+            RoaringBitmap right = new RoaringBitmap();
+            BitSet leftValues = new BitSet();
+            BitSet rightValues = new BitSet();
+            fill(left, leftValues, random, universe, random.nextDouble());
+            fill(right, rightValues, random, universe / (1 + random.nextInt(3)), random.nextDouble() / 10);
+
+            BitSet union = (BitSet) leftValues.clone();
+            union.or(rightValues);
+            BitSet intersection = (BitSet) leftValues.clone();
+            intersection.and(rightValues);
+            assertSameValues("or", union, left.or(right));
+            assertSameValues("or reversed", union, right.or(left));
+            assertSameValues("and", intersection, left.and(right));
+            assertSameValues("and reversed", intersection, right.and(left));
+
+            RoaringBitmap changed = left.or(right);
+            changed.add(universe + 1);
+            changed.remove(leftValues.nextSetBit(0));
+            assertSameValues("left is not changed through the union", leftValues, left);
+            assertSameValues("right is not changed through the union", rightValues, right);
+        }
+    }
+
+    @Test
+    public void containerChangesKindBothWays() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        for (int value = 0; value < 65536; value += 2) {
+            bitmap.add(value);
+            expected.set(value);
+        }
+        assertSameValues("dense container", expected, bitmap);
+        for (int value = 0; value < 65536; value += 4) {
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        for (int value = 2; value < 60000; value += 4) {
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        assertSameValues("sparse again", expected, bitmap);
+    }
+
+    @Test
+    public void largeValuesAndClear() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int[] values = {0, 65535, 65536, 1 << 24, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        BitSet expected = new BitSet();
+        for (int value : values) {
+            bitmap.add(value);
+            bitmap.add(value);
+            expected.set(value);
+        }
+        assertSameValues("large values", expected, bitmap);
+        bitmap.clear();
+        assertTrue(bitmap.isEmpty());
+        assertFalse(bitmap.contains(Integer.MAX_VALUE));
+        bitmap.add(5);
+        assertEquals(1, bitmap.cardinality());
+    }
+}